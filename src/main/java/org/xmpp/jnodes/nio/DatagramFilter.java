@@ -0,0 +1,17 @@
+package org.xmpp.jnodes.nio;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Looks at the datagrams of a channel on the receiving thread, before they are dispatched to the
+ * DatagramListener. Must return quickly and never block.
+ */
+public interface DatagramFilter {
+
+    /**
+     * @return true if the datagram has been consumed and must not reach the listener
+     */
+    public boolean filter(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address);
+
+}
@@ -0,0 +1,10 @@
+package org.xmpp.jnodes.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+
+public interface ListenerDatagramChannelFactory {
+
+    ListenerDatagramChannel open(final DatagramListener datagramListener, final SocketAddress localAddress) throws IOException;
+
+}
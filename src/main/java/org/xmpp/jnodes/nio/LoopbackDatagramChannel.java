@@ -0,0 +1,168 @@
+package org.xmpp.jnodes.nio;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process ListenerDatagramChannel. Channels bound through this class exchange datagrams
+ * through lock-free queues instead of sockets, so signaling flows can be driven and profiled
+ * without the kernel in the way.
+ * <p/>
+ * As with SelDatagramChannel the listener receives a fresh buffer of RECEIVE_BUFFER_SIZE bytes
+ * positioned after the datagram, together with the address the sender is bound to.
+ * Datagrams sent to an address nobody is bound to are silently dropped.
+ * <p/>
+ * Without an Executor the datagrams are delivered on the sending thread, which makes a flow
+ * fully deterministic; a channel already being drained by another thread just gets the datagram
+ * queued, so listeners answering back never recurse.
+ */
+public class LoopbackDatagramChannel implements ListenerDatagramChannel {
+
+    private final static int RECEIVE_BUFFER_SIZE = SelDatagramChannel.RECEIVE_BUFFER_SIZE;
+
+    private final static ConcurrentMap<SocketAddress, LoopbackDatagramChannel> bound = new ConcurrentHashMap<SocketAddress, LoopbackDatagramChannel>();
+
+    public final static ListenerDatagramChannelFactory FACTORY = new ListenerDatagramChannelFactory() {
+        public ListenerDatagramChannel open(final DatagramListener datagramListener, final SocketAddress localAddress) throws IOException {
+            return LoopbackDatagramChannel.open(datagramListener, localAddress);
+        }
+    };
+
+    // Instance Properties
+    private final SocketAddress localAddress;
+    private final Executor executor;
+    private final Queue<Datagram> queue = new ConcurrentLinkedQueue<Datagram>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile DatagramListener datagramListener;
+    private volatile boolean closed = false;
+
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    protected LoopbackDatagramChannel(final SocketAddress localAddress, final DatagramListener datagramListener, final Executor executor) {
+        this.localAddress = localAddress;
+        this.datagramListener = datagramListener;
+        this.executor = executor;
+    }
+
+    public static LoopbackDatagramChannel open(final DatagramListener datagramListener, final SocketAddress localAddress) throws IOException {
+        return open(datagramListener, localAddress, null);
+    }
+
+    public static LoopbackDatagramChannel open(final DatagramListener datagramListener, final SocketAddress localAddress, final Executor executor) throws IOException {
+        final LoopbackDatagramChannel c = new LoopbackDatagramChannel(localAddress, datagramListener, executor);
+        if (bound.putIfAbsent(localAddress, c) != null) {
+            throw new BindException("Address already in use: " + localAddress);
+        }
+        return c;
+    }
+
+    public int send(final ByteBuffer src, final SocketAddress target) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        final int len = src.remaining();
+        final LoopbackDatagramChannel dest = bound.get(target);
+        if (dest == null || dest.closed) {
+            // Nobody listening, consume it as the network would
+            src.position(src.limit());
+            return len;
+        }
+
+        final ByteBuffer b = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE);
+        if (len > RECEIVE_BUFFER_SIZE) {
+            final int limit = src.limit();
+            src.limit(src.position() + RECEIVE_BUFFER_SIZE);
+            b.put(src);
+            src.limit(limit);
+            src.position(limit);
+        } else {
+            b.put(src);
+        }
+
+        dest.queue.offer(new Datagram(b, localAddress));
+        dest.dispatch();
+        return len;
+    }
+
+    private void dispatch() {
+        if (executor == null) {
+            drain();
+        } else if (!draining.get()) {
+            executor.execute(drainTask);
+        }
+    }
+
+    /**
+     * Delivers every queued datagram to the listener. Only one thread drains a channel at a time.
+     *
+     * @return the number of datagrams delivered by this call
+     */
+    public int drain() {
+        int n = 0;
+        while (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                Datagram d;
+                while ((d = queue.poll()) != null) {
+                    final DatagramListener listener = datagramListener;
+                    if (listener != null && !closed) {
+                        try {
+                            listener.datagramReceived(this, d.buffer, d.source);
+                        } catch (Throwable t) {
+                            t.printStackTrace();
+                        }
+                        n++;
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Gets the number of datagrams waiting for delivery
+     *
+     * @return
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        bound.remove(localAddress, this);
+        queue.clear();
+    }
+
+    public void setDatagramListener(DatagramListener listener) {
+        this.datagramListener = listener;
+    }
+
+    private static class Datagram {
+        final ByteBuffer buffer;
+        final SocketAddress source;
+
+        Datagram(final ByteBuffer buffer, final SocketAddress source) {
+            this.buffer = buffer;
+            this.source = source;
+        }
+    }
+}
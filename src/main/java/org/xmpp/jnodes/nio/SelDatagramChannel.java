@@ -13,14 +13,24 @@ import java.util.concurrent.Executors;
 
 public class SelDatagramChannel implements ListenerDatagramChannel {
 
+    public final static int RECEIVE_BUFFER_SIZE = 1450;
+
     private final static ExecutorService executorService = Executors.newFixedThreadPool(10);
     private static Selector selector;
 
     // Instance Properties
     protected final DatagramChannel channel;
     private DatagramListener datagramListener;
+    private volatile DatagramFilter datagramFilter;
+    private volatile boolean inlineDelivery = false;
     private final static Object obj = new Object();
 
+    public final static ListenerDatagramChannelFactory FACTORY = new ListenerDatagramChannelFactory() {
+        public ListenerDatagramChannel open(final DatagramListener datagramListener, final SocketAddress localAddress) throws IOException {
+            return SelDatagramChannel.open(datagramListener, localAddress);
+        }
+    };
+
     private static void init() {
         try {
             selector = Selector.open();
@@ -63,15 +73,28 @@ public class SelDatagramChannel implements ListenerDatagramChannel {
                                         continue;
                                     }
 
-                                    final ByteBuffer b = ByteBuffer.allocateDirect(1450);
+                                    final ByteBuffer b = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
                                     final SocketAddress clientAddress;
                                     synchronized (sdc) {
                                         clientAddress = sdc.channel.receive(b);
                                     }
+                                    // Let the channel filter consume it right here
+                                    final DatagramFilter f = sdc.datagramFilter;
+                                    if (clientAddress != null && f != null) {
+                                        try {
+                                            if (f.filter(sdc, b, clientAddress)) {
+                                                continue;
+                                            }
+                                        } catch (Throwable t) {
+                                            t.printStackTrace();
+                                        }
+                                    }
                                     // If we got the datagram successfully, broadcast the Event
                                     if (clientAddress != null) {
                                         // Execute in a different Thread avoid serialization
-                                        if (sdc.datagramListener != null) {
+                                        if (sdc.datagramListener != null && sdc.inlineDelivery) {
+                                            sdc.datagramListener.datagramReceived(sdc, b, clientAddress);
+                                        } else if (sdc.datagramListener != null) {
                                             executorService.submit(new Runnable() {
                                                 public void run() {
                                                     sdc.datagramListener.datagramReceived(sdc, b, clientAddress);
@@ -143,4 +166,20 @@ public class SelDatagramChannel implements ListenerDatagramChannel {
     public void setDatagramListener(DatagramListener listener) {
         this.datagramListener = listener;
     }
+
+    /**
+     * Sets a filter run on the selector thread for each datagram of this channel only;
+     * the datagrams it does not consume are delivered to the listener as usual.
+     */
+    public void setDatagramFilter(final DatagramFilter filter) {
+        this.datagramFilter = filter;
+    }
+
+    /**
+     * Delivers the datagrams of this channel only on the selector thread instead of the executor.
+     * Only for listeners that return quickly and never block, e.g. SipPipeline.
+     */
+    public void setInlineDelivery(final boolean inline) {
+        this.inlineDelivery = inline;
+    }
 }
\ No newline at end of file
@@ -29,8 +29,11 @@ package org.zoolu.sip.address;
 
 
 import org.zoolu.sip.provider.SipParser;
+import org.zoolu.tools.CharClass;
 import org.zoolu.tools.Parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -39,10 +42,23 @@ import java.util.List;
  * <P> A SIP URL is a string of the form of:
  * <BR><BLOCKQUOTE><PRE>&nbsp&nbsp sip:[user@]hostname[:port][;parameters] </PRE></BLOCKQUOTE>
  * <P> If <i>port</i> number is ommitted, -1 is returned
+ * <P> The URL is parsed once, on first access to any of its components, into an immutable
+ * snapshot of the URL string it was parsed from, together with its hash code. Any change of
+ * the URL (through the mutators, or by assigning <i>url</i> in a subclass) leaves the
+ * snapshot stale, so it is re-parsed on next access and equals/hashCode always reflect
+ * the current content. As with any mutable key, a SipURL must not be modified while it is
+ * held in a hash-based collection.
+ * Two SipURLs are equal if they have the same user, host (case-insensitive), port and
+ * set of parameters (in any order, names case-insensitive).
  */
 public class SipURL {
     protected String url;
 
+    /**
+     * Parsed components of <i>url</i>, or null if not parsed yet
+     */
+    private volatile Components components;
+
     protected static final String transportParam = "transport";
     protected static final String maddrParam = "maddr";
     protected static final String ttlParam = "ttl";
@@ -56,12 +72,22 @@ public class SipURL {
     public SipURL(String sipurl) {
         sipurl = sipurl.toLowerCase();
         if (sipurl.startsWith("sip:")) {
-            url = sipurl;
+            setUrl(sipurl);
         } else {
-            url = "sip:" + sipurl;
+            setUrl("sip:" + sipurl);
         }
     }
 
+    /**
+     * Creates a copy of SipURL <i>u</i>, sharing its parsed components
+     *
+     * @param u
+     */
+    public SipURL(SipURL u) {
+        url = u.url;
+        components = u.components;
+    }
+
     /**
      * Creates a new SipURL
      *
@@ -109,7 +135,33 @@ public class SipURL {
         if (portnumber > 0) {
             sb.append(":").append(portnumber);
         }
-        url = sb.toString();
+        setUrl(sb.toString());
+    }
+
+    /**
+     * Sets the URL string, dropping the parsed components
+     *
+     * @param url
+     */
+    private void setUrl(String url) {
+        this.url = url;
+        this.components = null;
+    }
+
+    /**
+     * Gets the parsed components of the current URL string, re-parsing it if it has
+     * changed since the components were taken
+     *
+     * @return
+     */
+    private Components components() {
+        final String u = url;
+        Components c = components;
+        if (c == null || c.url != u) {
+            c = new Components(u);
+            components = c;
+        }
+        return c;
     }
 
     /**
@@ -123,8 +175,14 @@ public class SipURL {
      * Indicates whether some other Object is "equal to" this URL
      */
     public boolean equals(Object obj) {
-        SipURL newurl = (SipURL) obj;
-        return url.equals(newurl.toString());
+        return obj instanceof SipURL && equals((SipURL) obj);
+    }
+
+    /**
+     * Gets the hash code of the URL, consistent with equals
+     */
+    public int hashCode() {
+        return components().hashCode();
     }
 
     /**
@@ -133,13 +191,7 @@ public class SipURL {
      * @return
      */
     public String getUserName() {
-        int begin = 4; // skip "sip:"
-        int end = url.indexOf('@', begin);
-        if (end < 0) {
-            return null;
-        } else {
-            return url.substring(begin, end);
-        }
+        return components().user;
     }
 
     /**
@@ -148,21 +200,7 @@ public class SipURL {
      * @return
      */
     public String getHost() {
-        char[] host_terminators = {':', ';', '?'};
-        Parser par = new Parser(url);
-        int begin = par.indexOf('@'); // skip "sip:user@"
-        if (begin < 0) {
-            begin = 4; // skip "sip:"
-        } else {
-            begin++; // skip "@"
-        }
-        par.setPos(begin);
-        int end = par.indexOf(host_terminators);
-        if (end < 0) {
-            return url.substring(begin);
-        } else {
-            return url.substring(begin, end);
-        }
+        return components().host;
     }
 
     /**
@@ -171,21 +209,7 @@ public class SipURL {
      * @return
      */
     public int getPort() {
-        char[] port_terminators = {';', '?'};
-        Parser par = new Parser(url, 4); // skip "sip:"
-        int begin = par.indexOf(':');
-        if (begin < 0) {
-            return -1;
-        } else {
-            begin++;
-            par.setPos(begin);
-            int end = par.indexOf(port_terminators);
-            if (end < 0) {
-                return Integer.parseInt(url.substring(begin));
-            } else {
-                return Integer.parseInt(url.substring(begin, end));
-            }
-        }
+        return components().port;
     }
 
     /**
@@ -213,7 +237,16 @@ public class SipURL {
      * @return
      */
     public boolean equals(SipURL sip_url) {
-        return (url.equals(sip_url.url));
+        if (sip_url == this) {
+            return true;
+        }
+        if (sip_url == null) {
+            return false;
+        }
+        if (url.equals(sip_url.url)) {
+            return true;
+        }
+        return hashCode() == sip_url.hashCode() && components().equals(sip_url.components());
     }
 
 
@@ -231,8 +264,13 @@ public class SipURL {
      * @return null if parameter does not exist.
      */
     public String getParameter(String name) {
-        SipParser par = new SipParser(url);
-        return ((SipParser) par.goTo(';').skipChar()).getParameter(name);
+        final Components c = components();
+        for (int i = 0; i < c.names.length; i++) {
+            if (c.names[i].equals(name)) {
+                return c.values[i];
+            }
+        }
+        return null;
     }
 
 
@@ -242,8 +280,7 @@ public class SipURL {
      * @return null if no parameter is present
      */
     public List getParameters() {
-        SipParser par = new SipParser(url);
-        return ((SipParser) par.goTo(';').skipChar()).getParameters();
+        return new ArrayList(Arrays.asList(components().names));
     }
 
     /**
@@ -253,8 +290,13 @@ public class SipURL {
      * @return
      */
     public boolean hasParameter(String name) {
-        SipParser par = new SipParser(url);
-        return ((SipParser) par.goTo(';').skipChar()).hasParameter(name);
+        final String[] names = components().names;
+        for (String n : names) {
+            if (n.equals(name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -272,7 +314,7 @@ public class SipURL {
      * @param name
      */
     public void addParameter(String name) {
-        url = url + ";" + name;
+        setUrl(url + ";" + name);
     }
 
     /**
@@ -283,9 +325,9 @@ public class SipURL {
      */
     public void addParameter(String name, String value) {
         if (value != null) {
-            url = url + ";" + name + "=" + value;
+            setUrl(url + ";" + name + "=" + value);
         } else {
-            url = url + ";" + name;
+            setUrl(url + ";" + name);
         }
     }
 
@@ -295,7 +337,7 @@ public class SipURL {
     public void removeParameters() {
         int index = url.indexOf(';');
         if (index >= 0) {
-            url = url.substring(0, index);
+            setUrl(url.substring(0, index));
         }
     }
 
@@ -313,14 +355,14 @@ public class SipURL {
         while (par.hasMore()) {
             int beginParam = par.getPos();
             par.skipChar();
-            if (par.getWord(SipParser.param_separators).equals(name)) {
+            if (par.getWord(SipParser.PARAM_SEPARATOR_CHARS).equals(name)) {
                 String top = url.substring(0, beginParam);
                 par.goToSkippingQuoted(';');
                 String bottom = "";
                 if (par.hasMore()) {
                     bottom = url.substring(par.getPos());
                 }
-                url = top.concat(bottom);
+                setUrl(top.concat(bottom));
                 return;
             }
             par.goTo(';');
@@ -431,6 +473,136 @@ public class SipURL {
     public void addLr() {
         addParameter(lrParam);
     }
-}
 
 
+    /**
+     * Immutable parsed components of a SIP URL
+     */
+    private static final class Components {
+
+        private static final CharClass host_terminators = new CharClass(":;?");
+
+        private static final CharClass port_terminators = new CharClass(";?");
+
+        private static final String[] NONE = new String[0];
+
+        final String url;
+        final String user;
+        final String host;
+        final int port;
+        final String[] names;
+        final String[] values;
+
+        private int hash;
+
+        Components(String url) {
+            this.url = url;
+            int begin = 4; // skip "sip:"
+            final int at = url.indexOf('@', begin);
+            if (at < 0) {
+                user = null;
+            } else {
+                user = url.substring(begin, at);
+                begin = at + 1;
+            }
+            final int len = url.length();
+            int end = host_terminators.indexIn(url, begin, len);
+            if (end < 0) {
+                end = len;
+            }
+            host = url.substring(begin, end);
+            if (end < len && url.charAt(end) == ':') {
+                begin = end + 1;
+                end = port_terminators.indexIn(url, begin, len);
+                if (end < 0) {
+                    end = len;
+                }
+                port = parsePort(url.substring(begin, end));
+            } else {
+                port = -1;
+            }
+
+            final int semicolon = url.indexOf(';', end);
+            if (semicolon < 0) {
+                names = values = NONE;
+            } else {
+                final List<String> n = new ArrayList<String>(4);
+                final List<String> v = new ArrayList<String>(4);
+                final SipParser par = new SipParser(url, semicolon + 1);
+                while (par.hasMore()) {
+                    final String name = par.getWord(SipParser.PARAM_SEPARATOR_CHARS);
+                    if (name.length() > 0) {
+                        String value = null;
+                        par.skipWSP();
+                        if (par.hasMore() && par.nextChar() == '=') {
+                            par.skipChar();
+                            value = par.getWordSkippingQuoted(SipParser.PARAM_SEPARATOR_CHARS);
+                        }
+                        n.add(name);
+                        v.add(value);
+                    }
+                    par.goToSkippingQuoted(';');
+                    if (par.hasMore()) {
+                        par.skipChar(); // skip ';'
+                    }
+                }
+                names = n.toArray(new String[n.size()]);
+                values = v.toArray(new String[v.size()]);
+            }
+        }
+
+        private static int parsePort(String port) {
+            try {
+                return Integer.parseInt(port);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        public int hashCode() {
+            if (hash == 0) {
+                hash = computeHash();
+            }
+            return hash;
+        }
+
+        private int computeHash() {
+            int h = (user != null) ? user.hashCode() : 0;
+            h = 31 * h + host.toLowerCase().hashCode();
+            h = 31 * h + port;
+            // order-independent
+            for (int i = 0; i < names.length; i++) {
+                h += names[i].toLowerCase().hashCode() ^ ((values[i] != null) ? values[i].toLowerCase().hashCode() : 0);
+            }
+            return (h == 0) ? 1 : h;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Components)) {
+                return false;
+            }
+            final Components c = (Components) obj;
+            if (port != c.port || !host.equalsIgnoreCase(c.host) || names.length != c.names.length) {
+                return false;
+            }
+            if (user == null ? c.user != null : !user.equals(c.user)) {
+                return false;
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (!c.hasParameter(names[i], values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean hasParameter(String name, String value) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(name)) {
+                    return (value == null) ? values[i] == null : value.equalsIgnoreCase(values[i]);
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.authentication;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.header.AuthorizationHeader;
+import org.zoolu.sip.header.ProxyAuthorizationHeader;
+import org.zoolu.sip.header.WwwAuthenticateHeader;
+import org.zoolu.sip.message.Message;
+import org.zoolu.tools.IdGenerator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class ChallengeCache authorizes outgoing requests preemptively, with the last challenge
+ * (WWW-Authenticate or Proxy-Authenticate) received from the same target.
+ * <p/> The first request toward a target is challenged as usual; handleChallenge() caches the challenge
+ * and adds the credentials to the request, to be sent again. Later requests toward that target get
+ * their AuthorizationHeader (or ProxyAuthorizationHeader) from authorize() before being sent, reusing
+ * the cached nonce with an increasing nonce-count, so they are not challenged again until the
+ * server refuses the nonce. A preemptively authorized request that is challenged (e.g. after a restart
+ * of the server) is authorized again from the new challenge, like a first request; only the request sent
+ * again by handleChallenge() is refused for good if challenged once more.
+ * <p/> Each target (the host and port of the request-URI) keeps one WWW-Authenticate and one
+ * Proxy-Authenticate challenge, in a bounded LRU cache; the credentials are set per realm.
+ */
+public class ChallengeCache {
+
+    /**
+     * Default maximum number of cached targets
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final ConcurrentLinkedHashMap<String, Target> targets;
+    private final ConcurrentHashMap<String, String[]> credentials = new ConcurrentHashMap<String, String[]>();
+    private volatile String[] defaultCredentials;
+
+    /**
+     * Creates a new ChallengeCache
+     *
+     * @param capacity maximum number of cached targets
+     */
+    public ChallengeCache(int capacity) {
+        targets = new ConcurrentLinkedHashMap.Builder<String, Target>()
+                .maximumWeightedCapacity(capacity)
+                .build();
+    }
+
+    /**
+     * Creates a new ChallengeCache with the default capacity
+     */
+    public ChallengeCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Sets the credentials for a realm
+     *
+     * @param realm    the realm (if null, the credentials are used for any realm without its own)
+     * @param username
+     * @param passwd
+     */
+    public void setCredentials(String realm, String username, String passwd) {
+        final String[] c = {username, passwd};
+        if (realm == null) {
+            defaultCredentials = c;
+        } else {
+            credentials.put(realm, c);
+        }
+    }
+
+    private String[] getCredentials(String realm) {
+        final String[] c = (realm != null) ? credentials.get(realm) : null;
+        return (c != null) ? c : defaultCredentials;
+    }
+
+    private static String targetOf(Message req) {
+        final SipURL url = req.getRequestLine().getAddress();
+        return url.hasPort() ? url.getHost() + ":" + url.getPort() : url.getHost();
+    }
+
+    /**
+     * Adds the credentials to request <i>req</i>, if a challenge has been cached for its target
+     *
+     * @param req
+     * @return whether any authorization header has been added
+     */
+    public boolean authorize(Message req) {
+        final Target t = targets.get(targetOf(req));
+        if (t == null) {
+            return false;
+        }
+        boolean done = false;
+        final Challenge www = t.www;
+        if (www != null) {
+            final AuthorizationHeader ah = www.authorize(req, getCredentials(www.realm));
+            if (ah != null) {
+                req.setAuthorizationHeader(ah);
+                done = true;
+            }
+        }
+        final Challenge proxy = t.proxy;
+        if (proxy != null) {
+            final AuthorizationHeader ah = proxy.authorize(req, getCredentials(proxy.realm));
+            if (ah != null) {
+                req.setProxyAuthorizationHeader(new ProxyAuthorizationHeader(ah.getValue()));
+                done = true;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Handles a 401 or 407 response to request <i>req</i>: caches the challenge and adds the credentials
+     * to the request. The request can then be sent again (with a new CSeq and branch).
+     *
+     * @param req  the challenged request
+     * @param resp the response
+     * @return false if the request cannot be authorized: no challenge or credentials, or the request
+     *         had already been sent again by handleChallenge() with credentials for that realm and the
+     *         challenge is not stale; the cached challenges are then dropped, so the next request starts
+     *         without credentials
+     */
+    public boolean handleChallenge(Message req, Message resp) {
+        final int code = resp.getStatusLine().getCode();
+        final boolean proxy;
+        final WwwAuthenticateHeader wh;
+        final AuthorizationHeader sent;
+        if (code == 401 && resp.hasWwwAuthenticateHeader()) {
+            proxy = false;
+            wh = resp.getWwwAuthenticateHeader();
+            sent = req.hasAuthorizationHeader() ? req.getAuthorizationHeader() : null;
+        } else if (code == 407 && resp.hasProxyAuthenticateHeader()) {
+            proxy = true;
+            wh = resp.getProxyAuthenticateHeader();
+            sent = req.hasProxyAuthorizationHeader() ? req.getProxyAuthorizationHeader() : null;
+        } else {
+            return false;
+        }
+        final String key = targetOf(req);
+        final Challenge c = new Challenge(wh);
+        if (c.nonce == null || getCredentials(c.realm) == null) {
+            return false;
+        }
+        Target t = targets.get(key);
+        if (sent != null && c.realm != null && c.realm.equals(sent.getRealmParam())
+                && !"true".equalsIgnoreCase(wh.getParameter("stale")) && t != null) {
+            final Challenge last = proxy ? t.proxy : t.www;
+            if (last != null && sent.getValue().equals(last.resent)) {
+                // the credentials have been refused, not just the nonce, whatever the new nonce is
+                targets.remove(key);
+                return false;
+            }
+        }
+
+        if (t == null) {
+            t = new Target();
+            final Target prev = targets.putIfAbsent(key, t);
+            if (prev != null) {
+                t = prev;
+            }
+        }
+        if (proxy) {
+            t.proxy = c;
+            req.removeProxyAuthorizationHeader();
+        } else {
+            t.www = c;
+            req.removeAuthorizationHeader();
+        }
+        if (!authorize(req)) {
+            return false;
+        }
+        if (proxy ? req.hasProxyAuthorizationHeader() : req.hasAuthorizationHeader()) {
+            c.resent = (proxy ? req.getProxyAuthorizationHeader() : req.getAuthorizationHeader()).getValue();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the challenges cached for the target of request <i>req</i>
+     *
+     * @param req
+     */
+    public void invalidate(Message req) {
+        targets.remove(targetOf(req));
+    }
+
+    /**
+     * Gets the number of cached targets
+     *
+     * @return
+     */
+    public int size() {
+        return targets.size();
+    }
+
+    private static final class Target {
+        volatile Challenge www;
+        volatile Challenge proxy;
+    }
+
+    private static final class Challenge {
+        final String realm;
+        final String nonce;
+        final String opaque;
+        final String algorithm;
+        /**
+         * "auth" if offered by the server, otherwise null
+         */
+        final String qop;
+        final AtomicLong nc = new AtomicLong();
+        /**
+         * Value of the credentials of the request sent again by handleChallenge() with this challenge
+         */
+        volatile String resent;
+
+        Challenge(WwwAuthenticateHeader wh) {
+            realm = wh.getRealmParam();
+            nonce = wh.getNonceParam();
+            opaque = wh.getOpaqueParam();
+            algorithm = wh.getAlgorithParam();
+            qop = offersAuth(wh.getQopOptionsParam()) ? "auth" : null;
+        }
+
+        private static boolean offersAuth(String options) {
+            if (options == null) {
+                return false;
+            }
+            for (String o : options.split(",")) {
+                if (o.trim().equalsIgnoreCase("auth")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Gets the credentials for <i>req</i> with the next nonce-count, or null
+         */
+        AuthorizationHeader authorize(Message req, String[] credentials) {
+            if (credentials == null) {
+                return null;
+            }
+            final WwwAuthenticateHeader wh = new WwwAuthenticateHeader("Digest");
+            wh.addRealmParam(realm);
+            wh.addNonceParam(nonce);
+            if (opaque != null) {
+                wh.addOpaqueParam(opaque);
+            }
+            if (algorithm != null) {
+                wh.addAlgorithParam(algorithm);
+            }
+            String count = null;
+            if (qop != null) {
+                wh.addCnonceParam(IdGenerator.getInstance().nextTag());
+                final String hex = Long.toHexString(nc.incrementAndGet());
+                count = "00000000".substring(hex.length()) + hex;
+            }
+            final String uri = req.getRequestLine().getAddress().toString();
+            return new DigestAuthentication(req.getRequestLine().getMethod(), uri, wh, qop, req.getBody(),
+                    credentials[0], credentials[1], count).getAuthorizationHeader();
+        }
+    }
+}
@@ -70,6 +70,20 @@ public class DigestAuthentication {
             '9', 'a', 'b', 'c', 'd', 'e',
             'f'};
 
+    /**
+     * MessageDigest instances are not thread-safe and costly to look up, so each thread keeps its own
+     */
+    private final static ThreadLocal<MessageDigest> md5 = new ThreadLocal<MessageDigest>() {
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    };
+
     /**
      * Costructs a new DigestAuthentication.
      */
@@ -417,12 +431,7 @@ public class DigestAuthentication {
      * @return
      */
     static byte[] getMD5(String str) {
-        try {
-            return MessageDigest.getInstance("MD5").digest(str.getBytes());
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return getMD5(str.getBytes());
     }
 
     /**
@@ -432,12 +441,17 @@ public class DigestAuthentication {
      * @return
      */
     static byte[] getMD5(byte[] bb) {
-        try {
-            return MessageDigest.getInstance("MD5").digest(bb);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return null;
-        }
+        final MessageDigest md = md5.get();
+        return md == null ? null : md.digest(bb);
+    }
+
+    /**
+     * Gets the MD5 MessageDigest of the calling thread, or null if MD5 is not available
+     *
+     * @return
+     */
+    static MessageDigest getMD5Digest() {
+        return md5.get();
     }
 
     /**
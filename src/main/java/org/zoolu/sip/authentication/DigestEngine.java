@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.authentication;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import org.zoolu.sip.header.AuthorizationHeader;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class DigestEngine validates digest-responses (RFC2617) as DigestAuthentication.checkResponse() does,
+ * for servers that check a lot of them (e.g. the REGISTER storm after an outage).
+ * <ul>
+ * <li> H(A1) is computed once per (username, realm) and kept in a bounded LRU cache, so the
+ * password is looked up and hashed only on a miss </li>
+ * <li> each thread reuses its own MessageDigest and byte buffers; A1, A2 and the KD input are
+ * written into them as bytes and hex-encoded in place, with no intermediate String </li>
+ * <li> a batch of AuthorizationHeaders is checked with a single thread-local lookup </li>
+ * </ul>
+ * The digests are the same of DigestAuthentication, including MD5-sess and auth-int.
+ */
+public class DigestEngine {
+
+    /**
+     * Resolves the passwords of the users, on a cache miss
+     */
+    public interface PasswordResolver {
+        /**
+         * Gets the password of <i>username</i> in <i>realm</i>, or null if the user is unknown
+         */
+        public String getPassword(String username, String realm);
+    }
+
+    /**
+     * Default maximum number of cached H(A1)
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final int MD5_LENGTH = 16;
+    private static final int HEX_LENGTH = 2 * MD5_LENGTH;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private static final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    private final PasswordResolver resolver;
+    private final ConcurrentLinkedHashMap<String, byte[]> ha1Cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new DigestEngine
+     *
+     * @param resolver resolves the passwords (if null, only the H(A1) put with putHA1() are known)
+     * @param capacity maximum number of cached H(A1)
+     */
+    public DigestEngine(PasswordResolver resolver, int capacity) {
+        this.resolver = resolver;
+        this.ha1Cache = new ConcurrentLinkedHashMap.Builder<String, byte[]>()
+                .maximumWeightedCapacity(capacity)
+                .build();
+    }
+
+    /**
+     * Creates a new DigestEngine with the default capacity
+     *
+     * @param resolver
+     */
+    public DigestEngine(PasswordResolver resolver) {
+        this(resolver, DEFAULT_CAPACITY);
+    }
+
+    private static String key(String username, String realm) {
+        return new StringBuilder(username.length() + realm.length() + 1).append(username).append(':').append(realm).toString();
+    }
+
+    /**
+     * Gets H(unq(username) ":" unq(realm) ":" passwd), from the cache or the PasswordResolver
+     *
+     * @param username
+     * @param realm
+     * @return the 16 bytes of the digest, or null if the user is unknown
+     */
+    public byte[] getHA1(String username, String realm) {
+        if (username == null || realm == null) {
+            return null;
+        }
+        final String key = key(username, realm);
+        byte[] ha1 = ha1Cache.get(key);
+        if (ha1 != null) {
+            hits.incrementAndGet();
+            return ha1;
+        }
+        misses.incrementAndGet();
+        final String passwd = (resolver != null) ? resolver.getPassword(username, realm) : null;
+        if (passwd == null) {
+            return null;
+        }
+        ha1 = DigestAuthentication.getMD5(key + ":" + passwd);
+        if (ha1 != null) {
+            ha1Cache.put(key, ha1);
+        }
+        return ha1;
+    }
+
+    /**
+     * Stores the H(A1) of a user, e.g. from a database of hashed credentials
+     *
+     * @param username
+     * @param realm
+     * @param ha1      the 32 hex digits of H(A1)
+     */
+    public void putHA1(String username, String realm, String ha1) {
+        if (ha1.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("Invalid H(A1): " + ha1);
+        }
+        final byte[] b = new byte[MD5_LENGTH];
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            final int hi = Character.digit(ha1.charAt(2 * i), 16);
+            final int lo = Character.digit(ha1.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Invalid H(A1): " + ha1);
+            }
+            b[i] = (byte) ((hi << 4) | lo);
+        }
+        ha1Cache.put(key(username, realm), b);
+    }
+
+    /**
+     * Removes the cached H(A1) of a user, e.g. when the password changes
+     *
+     * @param username
+     * @param realm
+     */
+    public void invalidate(String username, String realm) {
+        ha1Cache.remove(key(username, realm));
+    }
+
+    /**
+     * Whether the digest-response of <i>ah</i> is correct
+     *
+     * @param method the request method
+     * @param ah
+     * @param body   the request body, used with qop "auth-int"
+     * @return
+     */
+    public boolean check(String method, AuthorizationHeader ah, String body) {
+        return check(workers.get(), method, ah, body);
+    }
+
+    /**
+     * Checks a batch of AuthorizationHeaders of requests without body
+     *
+     * @param method  the request method (e.g. REGISTER)
+     * @param headers
+     * @return whether each digest-response is correct
+     */
+    public boolean[] check(String method, AuthorizationHeader[] headers) {
+        return check(new String[]{method}, headers, null);
+    }
+
+    /**
+     * Checks a batch of AuthorizationHeaders
+     *
+     * @param methods the request methods; a single method applies to all headers
+     * @param headers
+     * @param bodies  the request bodies, used with qop "auth-int" (may be null)
+     * @return whether each digest-response is correct
+     */
+    public boolean[] check(String[] methods, AuthorizationHeader[] headers, String[] bodies) {
+        final Worker w = workers.get();
+        final boolean[] valid = new boolean[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            final String method = methods.length == 1 ? methods[0] : methods[i];
+            valid[i] = headers[i] != null && check(w, method, headers[i], bodies != null ? bodies[i] : null);
+        }
+        return valid;
+    }
+
+    private boolean check(Worker w, String method, AuthorizationHeader ah, String body) {
+        final String response = ah.getResponseParam();
+        if (response == null || response.length() != HEX_LENGTH || w.md == null) {
+            return false;
+        }
+        final byte[] ha1 = getHA1(ah.getUsernameParam(), ah.getRealmParam());
+        if (ha1 == null) {
+            return false;
+        }
+        final String nonce = ah.getNonceParam() != null ? ah.getNonceParam() : ah.getNextnonceParam();
+        final String qop = ah.getQopParam();
+        final String cnonce = ah.getCnonceParam();
+        String nc = ah.getNcParam();
+        if (nc == null && cnonce != null) {
+            nc = "00000001";
+        }
+        final String algorithm = ah.getAlgorithParam();
+
+        // H(A1)
+        if (algorithm != null && algorithm.equalsIgnoreCase("MD5-sess")) {
+            w.reset().put(ha1, 0, MD5_LENGTH).put(':').put(nonce).put(':').put(cnonce).digest(w.ha1, 0);
+        } else {
+            hex(ha1, 0, w.ha1, 0);
+        }
+
+        // H(A2)
+        w.reset().put(method).put(':').put(ah.getUriParam());
+        if (qop != null && qop.equalsIgnoreCase("auth-int")) {
+            final byte[] b = (body != null) ? body.getBytes() : new byte[0];
+            w.put(':').putHex(w.md.digest(b));
+        }
+        w.digest(w.ha2, 0);
+
+        // KD(H(A1), unq(nonce) ":" [nc ":" unq(cnonce) ":" unq(qop) ":"] H(A2))
+        w.reset().put(w.ha1, 0, HEX_LENGTH).put(':').put(nonce).put(':');
+        if (qop != null) {
+            w.put(nc).put(':').put(cnonce).put(':').put(qop).put(':');
+        }
+        w.put(w.ha2, 0, HEX_LENGTH).digest(w.kd, 0);
+
+        int diff = 0;
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            diff |= w.kd[i] ^ response.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Hex-encodes the 16 bytes of <i>src</i> into <i>dst</i>
+     */
+    private static void hex(byte[] src, int off, byte[] dst, int pos) {
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            final int b = src[off + i];
+            dst[pos++] = HEX[(b >>> 4) & 0x0F];
+            dst[pos++] = HEX[b & 0x0F];
+        }
+    }
+
+    /**
+     * Gets the number of H(A1) found in the cache
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of H(A1) not found in the cache
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of cached H(A1)
+     *
+     * @return
+     */
+    public int size() {
+        return ha1Cache.size();
+    }
+
+    /**
+     * The per-thread MessageDigest and buffers
+     */
+    private static final class Worker {
+        final MessageDigest md = DigestAuthentication.getMD5Digest();
+        final byte[] digest = new byte[MD5_LENGTH];
+        final byte[] ha1 = new byte[HEX_LENGTH];
+        final byte[] ha2 = new byte[HEX_LENGTH];
+        final byte[] kd = new byte[HEX_LENGTH];
+        byte[] buf = new byte[256];
+        int len;
+
+        Worker reset() {
+            len = 0;
+            return this;
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) {
+                final byte[] b = new byte[Math.max(buf.length * 2, len + n)];
+                System.arraycopy(buf, 0, b, 0, len);
+                buf = b;
+            }
+        }
+
+        Worker put(char c) {
+            ensure(1);
+            buf[len++] = (byte) c;
+            return this;
+        }
+
+        Worker put(byte[] b, int off, int n) {
+            ensure(n);
+            System.arraycopy(b, off, buf, len, n);
+            len += n;
+            return this;
+        }
+
+        /**
+         * Appends the bytes of <i>s</i>, as String.getBytes() would (null is appended as nothing)
+         */
+        Worker put(String s) {
+            if (s == null) {
+                return this;
+            }
+            final int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                final char c = s.charAt(i);
+                if (c >= 0x80) {
+                    // rare: let the platform charset encode it
+                    len -= i;
+                    final byte[] b = s.getBytes();
+                    return put(b, 0, b.length);
+                }
+                buf[len++] = (byte) c;
+            }
+            return this;
+        }
+
+        /**
+         * Appends the hex of a digest
+         */
+        Worker putHex(byte[] d) {
+            ensure(HEX_LENGTH);
+            hex(d, 0, buf, len);
+            len += HEX_LENGTH;
+            return this;
+        }
+
+        /**
+         * Writes the hex of the MD5 of the buffer into <i>out</i>
+         */
+        void digest(byte[] out, int pos) {
+            md.update(buf, 0, len);
+            try {
+                md.digest(digest, 0, MD5_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e.toString());
+            }
+            hex(digest, 0, out, pos);
+        }
+    }
+}
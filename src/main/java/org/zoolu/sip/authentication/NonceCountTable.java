@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.authentication;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class NonceCountTable remembers the highest nonce-count (nc) seen for each live nonce, so that
+ * replayed digest-responses are rejected.
+ * <p/> The table is a fixed open-addressing array of longs, each packing a 32-bit fingerprint of
+ * the nonce, the 16-bit epoch the nonce was issued in and its last nc (16 bits), updated with a
+ * single compareAndSet; there is no lock nor allocation, and memory does not grow with the load.
+ * <p/> An epoch lasts <i>ttl</i> milliseconds: since nonces live at most that long, slots of entries
+ * issued before the previous epoch are expired and reused as they are met.
+ * If the few slots a nonce can use are all taken by live nonces the check fails, the same as a replay:
+ * the client is then challenged again and gets a new nonce.
+ */
+public class NonceCountTable {
+
+    /**
+     * Slots probed for a nonce
+     */
+    private static final int MAX_PROBES = 8;
+
+    /**
+     * Highest nonce-count accepted
+     */
+    public static final long MAX_NC = 0xFFFF;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long ttl;
+
+    /**
+     * Creates a new NonceCountTable
+     *
+     * @param capacity number of slots, rounded up to a power of two; should be about twice
+     *                 the nonces issued in 2*<i>ttl</i>
+     * @param ttl      lifetime of the nonces, in milliseconds
+     */
+    public NonceCountTable(int capacity, long ttl) {
+        int n = MAX_PROBES;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        this.slots = new AtomicLongArray(n);
+        this.mask = n - 1;
+        this.ttl = ttl;
+    }
+
+    private static long pack(int fingerprint, int epoch, long nc) {
+        return ((long) fingerprint << 32) | ((long) (epoch & 0xFFFF) << 16) | nc;
+    }
+
+    /**
+     * Records nonce-count <i>nc</i> for a nonce
+     *
+     * @param fingerprint a hash of the nonce
+     * @param issued      when the nonce was issued
+     * @param nc          the nonce-count
+     * @return true if <i>nc</i> is greater than any nc seen for the nonce; false if it is a replay,
+     *         <i>nc</i> is out of range or the table is full
+     */
+    public boolean update(int fingerprint, long issued, long nc) {
+        if (nc <= 0 || nc > MAX_NC) {
+            return false;
+        }
+        // fingerprint 0 would make an empty slot look taken
+        fingerprint |= 1;
+        final int epoch = (int) (issued / ttl) & 0xFFFF;
+        final int current = (int) (System.currentTimeMillis() / ttl) & 0xFFFF;
+        final long next = pack(fingerprint, epoch, nc);
+
+        final int first = fingerprint & mask;
+        while (true) {
+            // look for the nonce in all its slots first, then take the first free one
+            int free = -1;
+            long freeValue = 0;
+            boolean retry = false;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                final int i = (first + probe) & mask;
+                final long v = slots.get(i);
+                final int e = (int) (v >>> 16) & 0xFFFF;
+                if (v != 0 && (int) (v >>> 32) == fingerprint && e == epoch) {
+                    if (nc <= (v & 0xFFFF)) {
+                        return false;
+                    }
+                    if (slots.compareAndSet(i, v, next)) {
+                        return true;
+                    }
+                    retry = true;
+                    break;
+                }
+                if (free < 0 && (v == 0 || (e != current && e != ((current - 1) & 0xFFFF)))) {
+                    free = i;
+                    freeValue = v;
+                }
+            }
+            if (retry) {
+                continue;
+            }
+            if (free < 0) {
+                return false;
+            }
+            if (slots.compareAndSet(free, freeValue, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the lifetime of the nonces the table has been sized for, in milliseconds
+     *
+     * @return
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Gets the number of slots
+     *
+     * @return
+     */
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.authentication;
+
+import org.zoolu.sip.header.AuthorizationHeader;
+import org.zoolu.sip.header.WwwAuthenticateHeader;
+import org.zoolu.tools.IdGenerator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * Class NonceService issues and validates self-validating nonces for digest authentication (RFC2617).
+ * <p/> A nonce is the hex of the issue time, a random salt and an HMAC-SHA256 (truncated to 96 bits) of
+ * both and of a context (e.g. the realm), so any node sharing the key can validate it without
+ * a shared nonce store.
+ * <p/> Replays of a digest-response within the nonce lifetime are only detected if a NonceCountTable
+ * is given; each nonce then accepts increasing nonce-counts only. Responses without qop carry no
+ * nonce-count (RFC2069 compatibility) and are not checked for replays.
+ */
+public class NonceService {
+
+    /**
+     * The nonce is valid
+     */
+    public static final int VALID = 0;
+    /**
+     * The nonce is authentic but expired; the client should be challenged with stale=true
+     */
+    public static final int STALE = 1;
+    /**
+     * The nonce has not been issued by this service, or not for that context
+     */
+    public static final int INVALID = 2;
+    /**
+     * The nonce-count has already been used
+     */
+    public static final int REPLAYED = 3;
+
+    /**
+     * Default lifetime of the nonces, in milliseconds
+     */
+    public static final long DEFAULT_TTL = 300000;
+
+    /**
+     * Nonces issued up to this far in the future (e.g. by another node with a fast clock) are accepted
+     */
+    public static final long MAX_CLOCK_SKEW = 5000;
+
+    private static final int TIME_LENGTH = 8;
+    private static final int SALT_LENGTH = 4;
+    private static final int MAC_LENGTH = 12;
+    private static final int DATA_LENGTH = TIME_LENGTH + SALT_LENGTH;
+
+    /**
+     * Length of the nonces
+     */
+    public static final int NONCE_LENGTH = 2 * (DATA_LENGTH + MAC_LENGTH);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SecretKeySpec key;
+    private final long ttl;
+    private final NonceCountTable ncTable;
+
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        protected Mac initialValue() {
+            try {
+                final Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e.toString());
+            }
+        }
+    };
+
+    /**
+     * Creates a new NonceService
+     *
+     * @param secret  the key, shared by all the nodes validating the nonces
+     * @param ttl     lifetime of the nonces, in milliseconds
+     * @param ncTable the table of the nonce-counts (if null, replays are not detected); it must
+     *                have the same lifetime, or the slots of live nonces would be recycled
+     * @throws IllegalArgumentException if the lifetime of <i>ncTable</i> is not <i>ttl</i>
+     */
+    public NonceService(byte[] secret, long ttl, NonceCountTable ncTable) {
+        if (ncTable != null && ncTable.getTtl() != ttl) {
+            throw new IllegalArgumentException("nonce-count table ttl " + ncTable.getTtl() + " does not match nonce ttl " + ttl);
+        }
+        this.key = new SecretKeySpec(secret.clone(), "HmacSHA256");
+        this.ttl = ttl;
+        this.ncTable = ncTable;
+        // fail early on a bad key
+        macs.get();
+    }
+
+    /**
+     * Creates a new NonceService with the default lifetime and no replay detection
+     *
+     * @param secret
+     */
+    public NonceService(byte[] secret) {
+        this(secret, DEFAULT_TTL, null);
+    }
+
+    /**
+     * Issues a new nonce
+     *
+     * @param context what the nonce is bound to, e.g. the realm (may be null)
+     * @return
+     */
+    public String issue(String context) {
+        final byte[] data = new byte[DATA_LENGTH];
+        putLong(data, 0, System.currentTimeMillis());
+        final long salt = IdGenerator.nextLong();
+        for (int i = 0; i < SALT_LENGTH; i++) {
+            data[TIME_LENGTH + i] = (byte) (salt >>> (8 * i));
+        }
+        final byte[] mac = mac(data, context);
+
+        final char[] out = new char[NONCE_LENGTH];
+        hex(data, DATA_LENGTH, out, 0);
+        hex(mac, MAC_LENGTH, out, 2 * DATA_LENGTH);
+        return new String(out);
+    }
+
+    /**
+     * Validates a nonce, without checking any nonce-count
+     *
+     * @param nonce
+     * @param context the context the nonce has been issued for
+     * @return VALID, STALE or INVALID
+     */
+    public int validate(String nonce, String context) {
+        return validate(nonce, context, -1);
+    }
+
+    /**
+     * Validates a nonce and, if there is a NonceCountTable, its nonce-count
+     *
+     * @param nonce
+     * @param context the context the nonce has been issued for
+     * @param nc      the nonce-count, or -1 not to check it
+     * @return VALID, STALE, INVALID or REPLAYED
+     */
+    public int validate(String nonce, String context, long nc) {
+        if (nonce == null || nonce.length() != NONCE_LENGTH) {
+            return INVALID;
+        }
+        final byte[] data = new byte[DATA_LENGTH];
+        if (!unhex(nonce, 0, data, DATA_LENGTH)) {
+            return INVALID;
+        }
+        final byte[] mac = mac(data, context);
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            final int hi = Character.digit(nonce.charAt(2 * (DATA_LENGTH + i)), 16);
+            final int lo = Character.digit(nonce.charAt(2 * (DATA_LENGTH + i) + 1), 16);
+            diff |= (hi | lo) >>> 31;
+            diff |= ((hi << 4) | lo) ^ (mac[i] & 0xFF);
+        }
+        if (diff != 0) {
+            return INVALID;
+        }
+        final long issued = getLong(data, 0);
+        final long now = System.currentTimeMillis();
+        if (issued > now + MAX_CLOCK_SKEW) {
+            return INVALID;
+        }
+        if (now - issued > ttl) {
+            return STALE;
+        }
+        if (ncTable != null && nc >= 0) {
+            final int fingerprint = (mac[0] & 0xFF) | (mac[1] & 0xFF) << 8 | (mac[2] & 0xFF) << 16 | (mac[3] & 0xFF) << 24;
+            if (!ncTable.update(fingerprint, issued, nc)) {
+                return REPLAYED;
+            }
+        }
+        return VALID;
+    }
+
+    /**
+     * Validates the nonce and nonce-count of an AuthorizationHeader, in the context of its realm.
+     * The nonce-count is checked only if the header has a qop, as it must then carry one.
+     *
+     * @param ah
+     * @return VALID, STALE, INVALID or REPLAYED
+     */
+    public int validate(AuthorizationHeader ah) {
+        long nc = -1;
+        if (ah.hasQopParam()) {
+            final String ncParam = ah.getNcParam();
+            if (ncParam == null) {
+                return INVALID;
+            }
+            try {
+                nc = Long.parseLong(ncParam, 16);
+            } catch (NumberFormatException e) {
+                return INVALID;
+            }
+        }
+        return validate(ah.getNonceParam(), ah.getRealmParam(), nc);
+    }
+
+    /**
+     * Creates a challenge with a new nonce
+     *
+     * @param realm
+     * @param stale whether the previous nonce of the client was stale
+     * @return
+     */
+    public WwwAuthenticateHeader createChallenge(String realm, boolean stale) {
+        final WwwAuthenticateHeader wh = new WwwAuthenticateHeader("Digest");
+        wh.addRealmParam(realm);
+        wh.addNonceParam(issue(realm));
+        wh.addAlgorithParam("MD5");
+        wh.addQopOptionsParam("auth");
+        if (stale) {
+            wh.addParameter("stale", "true");
+        }
+        return wh;
+    }
+
+    /**
+     * Gets the lifetime of the nonces, in milliseconds
+     *
+     * @return
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    private byte[] mac(byte[] data, String context) {
+        final Mac mac = macs.get();
+        mac.update(data);
+        if (context != null) {
+            mac.update(context.getBytes());
+        }
+        return mac.doFinal();
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static void hex(byte[] src, int len, char[] dst, int pos) {
+        for (int i = 0; i < len; i++) {
+            dst[pos++] = HEX[(src[i] >>> 4) & 0x0F];
+            dst[pos++] = HEX[src[i] & 0x0F];
+        }
+    }
+
+    private static boolean unhex(String s, int pos, byte[] dst, int len) {
+        for (int i = 0; i < len; i++) {
+            final int hi = Character.digit(s.charAt(pos++), 16);
+            final int lo = Character.digit(s.charAt(pos++), 16);
+            if (hi < 0 || lo < 0) {
+                return false;
+            }
+            dst[i] = (byte) ((hi << 4) | lo);
+        }
+        return true;
+    }
+}
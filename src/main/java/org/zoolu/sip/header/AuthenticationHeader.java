@@ -29,6 +29,7 @@ package org.zoolu.sip.header;
 
 
 import org.zoolu.sip.provider.SipParser;
+import org.zoolu.tools.CharClass;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,16 @@ public abstract class AuthenticationHeader extends Header {
      */
     public static String[] QUOTEDPARAMETERS = {"auts", "cnonce", "nextnonce", "nonce", "opaque", "realm", "response", "rspauth", "uri", "username", "domain", "qop"};
 
+    /**
+     * Parameter name separators, including CR/LF.
+     */
+    static final CharClass NAME_SEPARATORS = new CharClass("= \t\r\n");
+
+    /**
+     * Parameter name separators within a line.
+     */
+    static final CharClass NAME_SEPARATORS_WSP = new CharClass("= \t");
+
 
     /**
      * Whether is a quoted parameter (i.e. belongs to <i>QUOTEDPARAMETERS</i>).
@@ -163,7 +174,7 @@ public abstract class AuthenticationHeader extends Header {
      * @return
      */
     public boolean hasParameter(String param_name) {
-        char[] name_separators = {'=', ' ', '\t', '\r', '\n'};
+        final CharClass name_separators = NAME_SEPARATORS;
         SipParser par = new SipParser(value);
         par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -185,7 +196,7 @@ public abstract class AuthenticationHeader extends Header {
      * @return
      */
     public String getParameter(String param_name) {
-        char[] name_separators = {'=', ' ', '\t'};
+        final CharClass name_separators = NAME_SEPARATORS_WSP;
         SipParser par = new SipParser(value);
         par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -213,7 +224,7 @@ public abstract class AuthenticationHeader extends Header {
      * @returns a List of String.
      */
     public List getParameters() {
-        char[] name_separators = {'=', ' ', '\t'};
+        final CharClass name_separators = NAME_SEPARATORS_WSP;
         SipParser par = new SipParser(value);
         par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -29,6 +29,7 @@ package org.zoolu.sip.header;
 
 
 import org.zoolu.sip.provider.SipParser;
+import org.zoolu.tools.CharClass;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,7 +79,7 @@ public class AuthenticationInfoHeader extends AuthenticationHeader {
      * Whether has parameter <i>param_name</i>
      */
     public boolean hasParameter(String param_name) {
-        char[] name_separators = {'=', ' ', '\t', '\r', '\n'};
+        final CharClass name_separators = NAME_SEPARATORS;
         SipParser par = new SipParser(value);
         //par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -96,7 +97,7 @@ public class AuthenticationInfoHeader extends AuthenticationHeader {
      * Returns the parameter <i>param_name</i>, in case removing quotes.
      */
     public String getParameter(String param_name) {
-        char[] name_separators = {'=', ' ', '\t'};
+        final CharClass name_separators = NAME_SEPARATORS_WSP;
         SipParser par = new SipParser(value);
         //par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -122,7 +123,7 @@ public class AuthenticationInfoHeader extends AuthenticationHeader {
      * @returns a List of String.
      */
     public List getParameters() {
-        char[] name_separators = {'=', ' ', '\t'};
+        final CharClass name_separators = NAME_SEPARATORS_WSP;
         SipParser par = new SipParser(value);
         //par.skipString(); // skip the auth_scheme
         par.skipWSPCRLF();
@@ -28,6 +28,8 @@
 package org.zoolu.sip.header;
 
 
+import org.zoolu.tools.Clock;
+
 import java.util.Date;
 
 
@@ -35,6 +37,13 @@ import java.util.Date;
  * SIP Header Date
  */
 public class DateHeader extends SipDateHeader {
+    /**
+     * Creates a DateHeader with the current date, as cached by the Clock
+     */
+    public DateHeader() {
+        super(SipHeaders.Date, Clock.getDate());
+    }
+
     public DateHeader(String hvalue) {
         super(SipHeaders.Date, hvalue);
     }
@@ -117,7 +117,7 @@ public abstract class EndPointHeader extends NameAddressHeader {
      * @return
      */
     public String getTag() {
-        return this.getParameter("tag");
+        return NameAddressCache.getInstance().getTag(this);
     }
 
     /**
@@ -138,6 +138,16 @@ public abstract class EndPointHeader extends NameAddressHeader {
      *         (that leads to the wildcard in case of ContactHeader)
      */
     public NameAddress getNameAddress() {
+        return NameAddressCache.getInstance().getEndPointNameAddress(value);
+    }
+
+    /**
+     * Parses the end point NameAddress of an EndPointHeader value.
+     *
+     * @param value
+     * @return
+     */
+    static NameAddress parseEndPointNameAddress(String value) {
         NameAddress naddr = (new SipParser(value)).getNameAddress();
         // patch for removing eventual 'tag' or other EndPointHeader parameters from NameAddress
         SipURL url = naddr.getAddress();
@@ -28,6 +28,7 @@
 package org.zoolu.sip.header;
 
 
+import org.zoolu.tools.CharClass;
 import org.zoolu.tools.Parser;
 
 
@@ -40,7 +41,7 @@ public class EventHeader extends ParametricHeader {
     /**
      * State delimiters.
      */
-    private static final char[] delim = {',', ';', ' ', '\t', '\n', '\r'};
+    private static final CharClass delim = new CharClass(",; \t\n\r");
 
     /**
      * Costructs a new EventHeader.
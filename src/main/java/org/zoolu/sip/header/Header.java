@@ -122,4 +122,21 @@ public class Header {
     public String toString() {
         return name + ": " + value + "\r\n";
     }
+
+    /**
+     * Appends the string representation of Header to <i>sb</i>.
+     * The compact form uses the compact header name (if any) and no space after the colon.
+     *
+     * @param sb
+     * @param compact
+     * @return
+     */
+    public StringBuilder appendTo(StringBuilder sb, boolean compact) {
+        if (compact) {
+            sb.append(SipHeaders.getCompactName(name)).append(':');
+        } else {
+            sb.append(name).append(": ");
+        }
+        return sb.append(value).append("\r\n");
+    }
 }
@@ -28,6 +28,7 @@
 package org.zoolu.sip.header;
 
 
+import org.zoolu.tools.CharClass;
 import org.zoolu.tools.Parser;
 
 import java.util.ArrayList;
@@ -46,6 +47,8 @@ public abstract class ListHeader extends Header {
         super(hd);
     }
 
+    private static final CharClass delim = new CharClass(",");
+
     /**
      * Gets list of tokens (as List of Strings).
      *
@@ -54,7 +57,6 @@ public abstract class ListHeader extends Header {
     public List getElements() {
         List elements = new ArrayList();
         Parser par = new Parser(value);
-        char[] delim = {','};
         while (par.hasMore()) {
             String elem = par.getWord(delim).trim();
             if (elem != null && elem.length() > 0) {
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.header;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.Weigher;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.provider.SipParser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class NameAddressCache is a bounded LRU cache from raw header values (e.g. of From, To,
+ * Contact) to their parsed NameAddress and tag.
+ * <p/> Within a dialog these values are byte-identical in every message, so they are parsed once.
+ * Cached entries are never handed out: since NameAddress and SipURL are mutable, each call returns
+ * a fresh copy, which shares the already parsed SipURL components.
+ * <p/> The cache is bounded by the total length of the cached values.
+ */
+public class NameAddressCache {
+
+    /**
+     * Default maximum total length of the cached values
+     */
+    public static final int DEFAULT_MAX_WEIGHT = 1 << 20;
+
+    /**
+     * Values longer than this are not cached
+     */
+    public static final int MAX_VALUE_LENGTH = 1024;
+
+    private static final NameAddressCache instance = new NameAddressCache(DEFAULT_MAX_WEIGHT);
+
+    private final ConcurrentLinkedHashMap<String, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new NameAddressCache
+     *
+     * @param maxWeight maximum total length of the cached values
+     */
+    public NameAddressCache(int maxWeight) {
+        cache = new ConcurrentLinkedHashMap.Builder<String, Entry>()
+                .maximumWeightedCapacity(maxWeight)
+                .weigher(new Weigher<Entry>() {
+                    public int weightOf(Entry entry) {
+                        return entry.weight;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Gets the shared NameAddressCache used by the headers
+     *
+     * @return
+     */
+    public static NameAddressCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the NameAddress of a name-address header value, as SipParser.getNameAddress() does
+     *
+     * @param value
+     * @return
+     */
+    public NameAddress getNameAddress(String value) {
+        return copy(getEntry(value).nameAddress);
+    }
+
+    /**
+     * Gets the NameAddress of an EndPointHeader value, without the EndPointHeader parameters
+     *
+     * @param value
+     * @return
+     */
+    public NameAddress getEndPointNameAddress(String value) {
+        final Entry entry = getEntry(value);
+        NameAddress naddr = entry.endPoint;
+        if (naddr == null) {
+            naddr = EndPointHeader.parseEndPointNameAddress(value);
+            entry.endPoint = naddr;
+        }
+        return copy(naddr);
+    }
+
+    /**
+     * Gets the 'tag' parameter of EndPointHeader <i>header</i>
+     *
+     * @param header
+     * @return
+     */
+    public String getTag(EndPointHeader header) {
+        final Entry entry = getEntry(header.getValue());
+        String tag = entry.tag;
+        if (tag == null) {
+            tag = header.getParameter("tag");
+            entry.tag = (tag == null) ? NO_TAG : tag;
+        } else if (tag == NO_TAG) {
+            tag = null;
+        }
+        return tag;
+    }
+
+    private Entry getEntry(String value) {
+        Entry entry = cache.get(value);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        entry = new Entry(value.length(), new SipParser(value).getNameAddress());
+        if (value.length() <= MAX_VALUE_LENGTH) {
+            final Entry e = cache.putIfAbsent(value, entry);
+            if (e != null) {
+                entry = e;
+            }
+        }
+        return entry;
+    }
+
+    private static NameAddress copy(NameAddress naddr) {
+        return new NameAddress(naddr.getDisplayName(), new SipURL(naddr.getAddress()));
+    }
+
+    /**
+     * Gets the number of lookups that found the value cached
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to parse the value
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the ratio of lookups that found the value cached
+     *
+     * @return
+     */
+    public double getHitRate() {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return (total == 0) ? 0 : (double) h / total;
+    }
+
+    /**
+     * Gets the number of cached values
+     *
+     * @return
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the total length of the cached values
+     *
+     * @return
+     */
+    public long getWeight() {
+        return cache.weightedSize();
+    }
+
+    /**
+     * Empties the cache and resets the stats
+     */
+    public void clear() {
+        cache.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Marks a value without tag
+     */
+    private static final String NO_TAG = new String("");
+
+    private static final class Entry {
+        final int weight;
+        final NameAddress nameAddress;
+        // computed on first use; races only parse twice the same value
+        volatile NameAddress endPoint;
+        volatile String tag;
+
+        Entry(int weight, NameAddress nameAddress) {
+            this.weight = Math.max(1, weight);
+            this.nameAddress = nameAddress;
+        }
+    }
+}
@@ -30,7 +30,6 @@ package org.zoolu.sip.header;
 
 import org.zoolu.sip.address.NameAddress;
 import org.zoolu.sip.address.SipURL;
-import org.zoolu.sip.provider.SipParser;
 import org.zoolu.tools.Parser;
 
 
@@ -79,8 +78,7 @@ public abstract class NameAddressHeader extends ParametricHeader {
      * @return
      */
     public NameAddress getNameAddress() {
-        NameAddress naddr = (new SipParser(value)).getNameAddress();
-        return naddr;
+        return NameAddressCache.getInstance().getNameAddress(value);
     }
 
     /**
@@ -167,7 +167,7 @@ public abstract class ParametricHeader extends Header {
         while (par.hasMore()) {
             int beginParam = par.getPos();
             par.skipChar();
-            if (par.getWord(SipParser.param_separators).equals(name)) {
+            if (par.getWord(SipParser.PARAM_SEPARATOR_CHARS).equals(name)) {
                 String top = header.substring(0, beginParam);
                 par.goToSkippingQuoted(';');
                 String bottom = "";
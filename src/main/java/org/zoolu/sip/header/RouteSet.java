@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.header;
+
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.provider.SipParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class RouteSet is an ordered set of Route or Record-Route values (RFC 3261, 12.1 and 16.12).
+ * <p/> Values are parsed once into immutable Entries, each one with its SipURL and lr flag,
+ * and are kept in a circular array: pop and push at both ends and reverse() take constant time
+ * and never re-join or re-split the header values. The comma-separated value is built only when
+ * requested and then cached until the next change.
+ */
+public class RouteSet {
+
+    private String name;
+    private Entry[] entries;
+    private int head;
+    private int size;
+    private boolean reversed;
+    private String value;
+
+    /**
+     * Creates an empty RouteSet of headers named <i>hname</i>
+     *
+     * @param hname
+     */
+    public RouteSet(String hname) {
+        name = hname;
+        entries = new Entry[4];
+    }
+
+    /**
+     * Creates a RouteSet with the values of a List of Headers. Each Header can be a comma-separated header.
+     *
+     * @param headers
+     */
+    public RouteSet(List headers) {
+        this(((Header) headers.get(0)).getName());
+        for (Object header : headers) {
+            addBottom((Header) header);
+        }
+    }
+
+    /**
+     * Creates a copy of RouteSet <i>rs</i>, with headers named <i>hname</i>.
+     * Entries are immutable, so they are shared.
+     *
+     * @param hname
+     * @param rs
+     */
+    public RouteSet(String hname, RouteSet rs) {
+        name = hname;
+        entries = new Entry[Math.max(4, rs.entries.length)];
+        for (int i = 0; i < rs.size; i++) entries[i] = rs.get(i);
+        size = rs.size;
+        value = rs.value;
+    }
+
+    /**
+     * Gets the header name
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of entries
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether the RouteSet has no entries
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets entry <i>i</i>, starting from the top
+     *
+     * @param i
+     * @return
+     */
+    public Entry get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(i));
+        }
+        return entries[slot(i)];
+    }
+
+    /**
+     * Gets the top entry, or null
+     *
+     * @return
+     */
+    public Entry getTop() {
+        return (size > 0) ? get(0) : null;
+    }
+
+    /**
+     * Gets the bottom entry, or null
+     *
+     * @return
+     */
+    public Entry getBottom() {
+        return (size > 0) ? get(size - 1) : null;
+    }
+
+    /**
+     * Removes and returns the top entry, or null
+     *
+     * @return
+     */
+    public Entry popTop() {
+        if (size == 0) {
+            return null;
+        }
+        final Entry e = remove(reversed ? size - 1 : 0);
+        if (!reversed) {
+            head = (head + 1) % entries.length;
+        }
+        return e;
+    }
+
+    /**
+     * Removes and returns the bottom entry, or null
+     *
+     * @return
+     */
+    public Entry popBottom() {
+        if (size == 0) {
+            return null;
+        }
+        final Entry e = remove(reversed ? 0 : size - 1);
+        if (reversed) {
+            head = (head + 1) % entries.length;
+        }
+        return e;
+    }
+
+    /**
+     * Adds an entry at the top
+     *
+     * @param e
+     */
+    public void addTop(Entry e) {
+        grow();
+        if (reversed) {
+            entries[(head + size) % entries.length] = e;
+        } else {
+            head = (head + entries.length - 1) % entries.length;
+            entries[head] = e;
+        }
+        size++;
+        value = null;
+    }
+
+    /**
+     * Adds an entry at the bottom
+     *
+     * @param e
+     */
+    public void addBottom(Entry e) {
+        grow();
+        if (reversed) {
+            head = (head + entries.length - 1) % entries.length;
+            entries[head] = e;
+        } else {
+            entries[(head + size) % entries.length] = e;
+        }
+        size++;
+        value = null;
+    }
+
+    /**
+     * Adds the (possibly comma-separated) values of Header <i>hd</i> at the bottom
+     *
+     * @param hd
+     */
+    public void addBottom(Header hd) {
+        final String v = hd.getValue();
+        if (v.indexOf(',') < 0) {
+            addBottom(new Entry(v.trim()));
+            return;
+        }
+        SipParser par = new SipParser(v);
+        int comma = par.indexOfCommaHeaderSeparator();
+        while (comma >= 0) {
+            addBottom(new Entry(par.getString(comma - par.getPos()).trim()));
+            par.skipChar(); //skip comma
+            comma = par.indexOfCommaHeaderSeparator();
+        }
+        addBottom(new Entry(par.getRemainingString().trim()));
+    }
+
+    /**
+     * Reverses the order of the entries (e.g. to get the route set of a UAC from the Record-Route)
+     */
+    public void reverse() {
+        reversed = !reversed;
+        value = null;
+    }
+
+    /**
+     * Gets the comma-separated value of the entries
+     *
+     * @return
+     */
+    public String getValue() {
+        String v = value;
+        if (v == null) {
+            final StringBuilder sb = new StringBuilder(size * 48);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(get(i).getValue());
+            }
+            v = sb.toString();
+            value = v;
+        }
+        return v;
+    }
+
+    /**
+     * Gets a single comma-separated Header
+     *
+     * @return
+     */
+    public Header toHeader() {
+        return new Header(name, getValue());
+    }
+
+    /**
+     * Gets a List of Headers, one per entry
+     *
+     * @return
+     */
+    public List<Header> toHeaders() {
+        final List<Header> v = new ArrayList<Header>(size);
+        for (int i = 0; i < size; i++) v.add(new Header(name, get(i).getValue()));
+        return v;
+    }
+
+    /**
+     * Gets the equivalent MultipleHeader
+     *
+     * @return
+     */
+    public MultipleHeader toMultipleHeader() {
+        final List<String> v = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) v.add(get(i).getValue());
+        return new MultipleHeader(name, v);
+    }
+
+    public String toString() {
+        return (size > 0) ? name + ": " + getValue() + "\r\n" : "";
+    }
+
+    private int slot(int i) {
+        return (head + (reversed ? size - 1 - i : i)) % entries.length;
+    }
+
+    /**
+     * Removes the entry at physical offset <i>k</i> from head, which must be either 0 or size-1
+     */
+    private Entry remove(int k) {
+        final int s = (head + k) % entries.length;
+        final Entry e = entries[s];
+        entries[s] = null;
+        size--;
+        value = null;
+        return e;
+    }
+
+    private void grow() {
+        if (size == entries.length) {
+            final Entry[] a = new Entry[entries.length * 2];
+            for (int i = 0; i < size; i++) a[i] = entries[(head + i) % entries.length];
+            entries = a;
+            head = 0;
+        }
+    }
+
+    /**
+     * Immutable Route or Record-Route value, parsed once
+     */
+    public static final class Entry {
+        private final String value;
+        private final NameAddress nameAddress;
+        private final boolean lr;
+
+        /**
+         * Creates an Entry from a header value
+         *
+         * @param value
+         */
+        public Entry(String value) {
+            this.value = value;
+            this.nameAddress = NameAddressCache.getInstance().getNameAddress(value);
+            this.lr = nameAddress != null && nameAddress.getAddress() != null && nameAddress.getAddress().hasLr();
+        }
+
+        /**
+         * Creates an Entry from a NameAddress
+         *
+         * @param naddr
+         */
+        public Entry(NameAddress naddr) {
+            this.nameAddress = new NameAddress(naddr.getDisplayName(), new SipURL(naddr.getAddress()));
+            this.value = nameAddress.toString();
+            this.lr = nameAddress.getAddress().hasLr();
+        }
+
+        /**
+         * Gets the header value
+         *
+         * @return
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Gets a copy of the NameAddress
+         *
+         * @return
+         */
+        public NameAddress getNameAddress() {
+            return (nameAddress != null) ? new NameAddress(nameAddress.getDisplayName(), getAddress()) : null;
+        }
+
+        /**
+         * Gets a copy of the SipURL
+         *
+         * @return
+         */
+        public SipURL getAddress() {
+            return (nameAddress != null && nameAddress.getAddress() != null) ? new SipURL(nameAddress.getAddress()) : null;
+        }
+
+        /**
+         * Whether the SipURL has the lr parameter (i.e. the hop is a loose router)
+         *
+         * @return
+         */
+        public boolean hasLr() {
+            return lr;
+        }
+
+        public String toString() {
+            return value;
+        }
+    }
+}
@@ -27,6 +27,9 @@
 
 package org.zoolu.sip.header;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * SipHeaders extends class sip.header.SipHeaders by adding new SIP header names.
  */
@@ -113,4 +116,32 @@ public class SipHeaders extends BaseSipHeaders {
         return same(str, Subscription_State);
     }
 
+    //****************************** Compact form *******************************/
+
+    private static final Map<String, String> compactNames = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        compactNames.put(CallID, CallID_short);
+        compactNames.put(Contact, Contact_short);
+        compactNames.put(Content_Length, Content_Length_short);
+        compactNames.put(Content_Type, Content_Type_short);
+        compactNames.put(From, From_short);
+        compactNames.put(Subject, Subject_short);
+        compactNames.put(Supported, Supported_short);
+        compactNames.put(To, To_short);
+        compactNames.put(Via, Via_short);
+        compactNames.put(Event, Event_short);
+    }
+
+    /**
+     * Gets the compact form of header name <i>str</i>
+     *
+     * @param str
+     * @return the compact name, or <i>str</i> if the header has no compact form
+     */
+    public static String getCompactName(String str) {
+        final String c = compactNames.get(str);
+        return (c != null) ? c : str;
+    }
+
 }
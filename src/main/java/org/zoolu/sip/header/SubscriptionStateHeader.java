@@ -28,6 +28,7 @@
 package org.zoolu.sip.header;
 
 
+import org.zoolu.tools.CharClass;
 import org.zoolu.tools.Parser;
 
 
@@ -53,7 +54,7 @@ public class SubscriptionStateHeader extends ParametricHeader {
     /**
      * State delimiters.
      */
-    private static final char[] delim = {',', ';', ' ', '\t', '\n', '\r'};
+    private static final CharClass delim = new CharClass(",; \t\n\r");
 
 
     /**
@@ -1222,9 +1222,9 @@ public abstract class BaseMessage {
      * Removes the top RouteHeader
      */
     public void removeRouteHeader() {  //removeHeader(SipHeaders.Route);
-        MultipleHeader mh = getRoutes();
-        mh.removeTop();
-        setRoutes(mh);
+        RouteSet rs = getRouteSet();
+        rs.popTop();
+        setRouteSet(rs);
     }
 
     /**
@@ -1246,6 +1246,34 @@ public abstract class BaseMessage {
         addRoutes(routes);
     }
 
+    /**
+     * Gets the whole route as a RouteSet
+     *
+     * @return the RouteSet, or null if there are no Route headers
+     */
+    public RouteSet getRouteSet() {
+        List v = getHeaders(SipHeaders.Route);
+        if (v.size() > 0) {
+            return new RouteSet(v);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the whole route, as a single comma-separated header
+     *
+     * @param routes
+     */
+    public void setRouteSet(RouteSet routes) {
+        if (hasRouteHeader()) {
+            removeRoutes();
+        }
+        if (routes != null && !routes.isEmpty()) {
+            addHeaderAfter(routes.toHeader(), SipHeaders.Via);
+        }
+    }
+
 
     /**
      * Whether Message has RecordRouteHeader
@@ -1306,9 +1334,9 @@ public abstract class BaseMessage {
      * Removes the top RecordRouteHeader
      */
     public void removeRecordRouteHeader() {  //removeHeader(SipHeaders.Record_Route);
-        MultipleHeader mh = getRecordRoutes();
-        mh.removeTop();
-        setRecordRoutes(mh);
+        RouteSet rs = getRecordRouteSet();
+        rs.popTop();
+        setRecordRouteSet(rs);
     }
 
     /**
@@ -1330,6 +1358,34 @@ public abstract class BaseMessage {
         addRecordRoutes(routes);
     }
 
+    /**
+     * Gets the whole RecordRoute headers as a RouteSet
+     *
+     * @return the RouteSet, or null if there are no Record-Route headers
+     */
+    public RouteSet getRecordRouteSet() {
+        List v = getHeaders(SipHeaders.Record_Route);
+        if (v.size() > 0) {
+            return new RouteSet(v);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the whole RecordRoute headers, as a single comma-separated header
+     *
+     * @param routes
+     */
+    public void setRecordRouteSet(RouteSet routes) {
+        if (hasRecordRouteHeader()) {
+            removeRecordRoutes();
+        }
+        if (routes != null && !routes.isEmpty()) {
+            addHeaderAfter(routes.toHeader(), SipHeaders.CSeq);
+        }
+    }
+
 
     /**
      * Whether Message has CSeqHeader
@@ -2129,16 +2185,13 @@ public abstract class BaseMessage {
      * and adapts the message.
      */
     public void rfc2543RouteAdapt() {
-        if (hasRouteHeader()) {
-            MultipleHeader mrh = getRoutes();
-            if (!(new RouteHeader(mrh.getTop())).getNameAddress().getAddress().hasLr()) {  // re-format the message according to the RFC2543 Strict Route rule
-                SipURL next_hop = (new RouteHeader(mrh.getTop())).getNameAddress().getAddress();
-                SipURL recipient = getRequestLine().getAddress();
-                mrh.removeTop();
-                mrh.addBottom(new RouteHeader(new NameAddress(recipient)));
-                setRoutes(mrh);
-                setRequestLine(new RequestLine(getRequestLine().getMethod(), next_hop));
-            }
+        RouteSet rs = getRouteSet();
+        if (rs != null && !rs.getTop().hasLr()) {  // re-format the message according to the RFC2543 Strict Route rule
+            SipURL next_hop = rs.popTop().getAddress();
+            SipURL recipient = getRequestLine().getAddress();
+            rs.addBottom(new RouteSet.Entry(new NameAddress(recipient)));
+            setRouteSet(rs);
+            setRequestLine(new RequestLine(getRequestLine().getMethod(), next_hop));
         }
     }
 
@@ -2154,13 +2207,11 @@ public abstract class BaseMessage {
         // the recipient of the message is the last Route value
         RequestLine request_line = getRequestLine();
         SipURL next_hop = request_line.getAddress();
-        MultipleHeader mrh = getRoutes();
-        SipURL target = (new RouteHeader(mrh.getBottom())).getNameAddress().getAddress();
-        mrh.removeBottom();
+        RouteSet rs = getRouteSet();
+        SipURL target = rs.popBottom().getAddress();
         next_hop.addLr();
-        mrh.addTop(new RouteHeader(new NameAddress(next_hop)));
-        removeRoutes();
-        addRoutes(mrh);
+        rs.addTop(new RouteSet.Entry(new NameAddress(next_hop)));
+        setRouteSet(rs);
         setRequestLine(new RequestLine(request_line.getMethod(), target));
     }
 
@@ -34,6 +34,9 @@ import org.zoolu.sip.header.*;
 import org.zoolu.sip.provider.SipProviderInfoInterface;
 import org.zoolu.sip.provider.SipStack;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 
 /**
  * BaseMessageFactory is used to create SIP messages, requests and
@@ -76,43 +79,82 @@ public abstract class BaseMessageFactory {
      * @return
      */
     public static Message createRequest(String method, SipURL requestUri, NameAddress to, NameAddress from, NameAddress contact, String proto, String viaAddr, int hostPort, boolean rport, String callId, long cseq, String localTag, String remoteTag, String branch, String body) {
-        Message req = new Message();
-        //mandatory headers first (To, From, Via, Max-Forwards, Call-ID, CSeq):
-        req.setRequestLine(new RequestLine(method, requestUri));
-        ViaHeader via = new ViaHeader(proto, viaAddr, hostPort);
-        if (rport) {
-            via.setRport();
+        return getRequestTemplate(method, proto, viaAddr, hostPort, rport, contact).createRequest(requestUri, to, from, callId, cseq, localTag, remoteTag, branch, body);
+    }
+
+    private static final int MAX_TEMPLATES = 1024;
+    private static final ConcurrentMap<TemplateKey, RequestTemplate> templates = new ConcurrentHashMap<TemplateKey, RequestTemplate>();
+
+    /**
+     * Gets the RequestTemplate for the given method and local endpoint, building it on first use.
+     *
+     * @param method   method name
+     * @param proto    Via transport protocol
+     * @param viaAddr  Via address
+     * @param hostPort Via port number
+     * @param rport    whether to add the rport parameter to Via
+     * @param contact  Contact NameAddress (if null, no ContactHeader is added)
+     * @return
+     */
+    public static RequestTemplate getRequestTemplate(String method, String proto, String viaAddr, int hostPort, boolean rport, NameAddress contact) {
+        final TemplateKey key = new TemplateKey(method, proto, viaAddr, hostPort, rport, contact != null ? contact.toString() : null);
+        RequestTemplate t = templates.get(key);
+        if (t == null) {
+            if (templates.size() >= MAX_TEMPLATES) {
+                templates.clear();
+            }
+            t = new RequestTemplate(method, proto, viaAddr, hostPort, rport, contact);
+            templates.put(key, t);
         }
-        if (branch == null) {
-            branch = BRANCH_PREFIX + callId;
+        return t;
+    }
+
+    /**
+     * Key of a RequestTemplate, including the SipStack values it depends on
+     */
+    private static final class TemplateKey {
+        final String method;
+        final String proto;
+        final String viaAddr;
+        final int hostPort;
+        final boolean rport;
+        final String contact;
+        final int expires = SipStack.default_expires;
+        final String uaInfo = SipStack.uaInfo;
+        final int hash;
+
+        TemplateKey(String method, String proto, String viaAddr, int hostPort, boolean rport, String contact) {
+            this.method = method;
+            this.proto = proto;
+            this.viaAddr = viaAddr;
+            this.hostPort = hostPort;
+            this.rport = rport;
+            this.contact = contact;
+            int h = method.hashCode();
+            h = 31 * h + proto.hashCode();
+            h = 31 * h + (viaAddr != null ? viaAddr.hashCode() : 0);
+            h = 31 * h + hostPort;
+            h = 31 * h + (contact != null ? contact.hashCode() : 0);
+            hash = 31 * h + expires;
         }
-        via.setBranch(branch);
-        req.addViaHeader(via);
-        req.setMaxForwardsHeader(new MaxForwardsHeader(70));
-        if (remoteTag == null) {
-            req.setToHeader(new ToHeader(to));
-        } else {
-            req.setToHeader(new ToHeader(to, remoteTag));
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TemplateKey)) {
+                return false;
+            }
+            final TemplateKey k = (TemplateKey) obj;
+            return hash == k.hash && hostPort == k.hostPort && rport == k.rport && expires == k.expires
+                    && method.equals(k.method) && proto.equals(k.proto) && same(viaAddr, k.viaAddr)
+                    && same(contact, k.contact) && same(uaInfo, k.uaInfo);
         }
-        req.setFromHeader(new FromHeader(from, localTag));
-        req.setCallIdHeader(new CallIdHeader(callId));
-        req.setCSeqHeader(new CSeqHeader(cseq, method));
-        //optional headers:
-        if (contact != null) {
-            MultipleHeader contacts = new MultipleHeader(SipHeaders.Contact);
-            contacts.addBottom(new ContactHeader(contact));
-            //System.out.println("DEBUG: Contact: "+contact.toString());
-            req.setContacts(contacts);
+
+        public int hashCode() {
+            return hash;
         }
-        req.setExpiresHeader(new ExpiresHeader(String.valueOf(SipStack.default_expires)));
-        // add User-Agent header field
-        if (SipStack.uaInfo != null) {
-            req.setUserAgentHeader(new UserAgentHeader(SipStack.uaInfo));
+
+        private static boolean same(String a, String b) {
+            return (a == null) ? b == null : a.equals(b);
         }
-        //if (body!=null) req.setBody(body); else req.setBody("");
-        req.setBody(body);
-        //System.out.println("DEBUG: MessageFactory: request:\n"+req);
-        return req;
     }
 
 
@@ -285,7 +327,7 @@ public abstract class BaseMessageFactory {
         Message ack = createRequest(SipMethods.ACK, requestUri, to.getNameAddress(), from.getNameAddress(), contact, proto, viaAddr, hostPort, rport, method.getCallIdHeader().getCallId(), method.getCSeqHeader().getSequenceNumber(), from.getParameter("tag"), to.getParameter("tag"), branch, null);
         ack.removeExpiresHeader();
         if (method.hasRouteHeader()) {
-            ack.setRoutes(method.getRoutes());
+            ack.setRouteSet(method.getRouteSet());
         }
         return ack;
     }
@@ -314,9 +356,9 @@ public abstract class BaseMessageFactory {
         NameAddress contact = null;
         Message ack = createRequest(SipMethods.ACK, requestUri, to.getNameAddress(), from.getNameAddress(), contact, proto, viaAddr, hostPort, rport, resp.getCallIdHeader().getCallId(), resp.getCSeqHeader().getSequenceNumber(), from.getParameter("tag"), to.getParameter("tag"), branch, null);
         ack.removeExpiresHeader();
-        final MultipleHeader mh = resp.getRecordRoutes();
-        if (mh != null) {
-            ack.setRecordRoutes(mh);
+        final RouteSet rs = resp.getRecordRouteSet();
+        if (rs != null) {
+            ack.setRecordRouteSet(rs);
             ack.rfc2543RouteAdapt();
         }
         //if (method.hasRouteHeader()) ack.setRoutes(method.getRoutes());
@@ -363,13 +405,12 @@ public abstract class BaseMessageFactory {
         Message ack = createRequest(SipMethods.ACK, requestUri, to.getNameAddress(), from.getNameAddress(), contact, resp.getViaHeader() != null ? resp.getViaHeader().getProtocol() : sipProvider.getDefaultTransport(), viaAddr, hostPort, rport, resp.getCallIdHeader() != null ? resp.getCallIdHeader().getCallId() : "12345678", resp.getCSeqHeader() != null ? resp.getCSeqHeader().getSequenceNumber() : 1, from.getParameter("tag"), to.getParameter("tag"), branch, body);
 
         if (code >= 200 && code < 300) {
-            if (resp.getRecordRoutes() != null) {
-                ack.setRoutes(new MultipleHeader(SipHeaders.Route, resp.getRecordRoutes().getValues()));
+            final RouteSet rs = resp.getRecordRouteSet();
+            if (rs != null) {
+                ack.setRouteSet(new RouteSet(SipHeaders.Route, rs));
             }
         } else {
-            if (resp.getRecordRoutes() != null) {
-                ack.setRecordRoutes(resp.getRecordRoutes());
-            }
+            ack.setRecordRouteSet(resp.getRecordRouteSet());
         }
         return ack;
     }
@@ -448,7 +489,7 @@ public abstract class BaseMessageFactory {
             RecordRouteHeader recordRouterHeader = lastMessage.getRecordRouteHeader();
             if (recordRouterHeader != null) {
                 //req.addRouteHeader(new RouteHeader(recordRouterHeader.getNameAddress()));
-                req.addRoutes(new MultipleHeader(SipHeaders.Route, lastMessage.getRecordRoutes().getValues()));
+                req.setRouteSet(new RouteSet(SipHeaders.Route, lastMessage.getRecordRouteSet()));
 
             }
             req.rfc2543RouteAdapt();
@@ -558,7 +599,7 @@ public abstract class BaseMessageFactory {
         resp.setStatusLine(new StatusLine(code, reason));
         resp.setVias(req.getVias());
         if (code >= 180 && code < 300 && req.hasRecordRouteHeader()) {
-            resp.setRecordRoutes(req.getRecordRoutes());
+            resp.setRecordRouteSet(req.getRecordRouteSet());
         }
         ToHeader toh = req.getToHeader();
         if (localTag != null) {
@@ -29,6 +29,7 @@ package org.zoolu.sip.message;
 
 
 import org.zoolu.sip.header.*;
+import org.zoolu.sip.provider.SipHeaderScanner;
 import org.zoolu.sip.provider.SipParser;
 
 import java.net.DatagramPacket;
@@ -49,7 +50,7 @@ public abstract class BaseMessageOtp extends BaseMessage {
     private StatusLine status_line;
 
     private List<Header> headers;
-    private String body;
+    private MessageBody body;
 
 
     /**
@@ -79,7 +80,21 @@ public abstract class BaseMessageOtp extends BaseMessage {
      */
     public BaseMessageOtp(byte[] data, int offset, int len) {
         init();
-        parseIt(new String(data, offset, len));
+        parseIt(data, offset, len);
+    }
+
+    /**
+     * Costructs a new Message from bytes already split by <i>scanner</i>
+     * (e.g. by a SipStreamParser), without scanning them again.
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @param scanner the scanner of the last scan of <i>data</i> at <i>offset</i>
+     */
+    public BaseMessageOtp(byte[] data, int offset, int len, SipHeaderScanner scanner) {
+        init();
+        parseIt(data, offset, len, scanner);
     }
 
     /**
@@ -89,7 +104,7 @@ public abstract class BaseMessageOtp extends BaseMessage {
      */
     public BaseMessageOtp(DatagramPacket packet) {
         init();
-        parseIt(new String(packet.getData(), packet.getOffset(), packet.getLength()));
+        parseIt(packet.getData(), packet.getOffset(), packet.getLength());
     }
 
     /**
@@ -132,14 +147,17 @@ public abstract class BaseMessageOtp extends BaseMessage {
      *
      * @param str
      */
-    private void parseIt(final String str) {
-        SipParser par = new SipParser(str);
-        final String version = par.getRemainingString().length() > 4 ? par.getRemainingString().substring(0, 4) : "q";
-        if (version.equalsIgnoreCase("SIP/")) {
-            status_line = par.getStatusLine();
-        } else {
-            request_line = par.getRequestLine();
+    private void parseIt(String str) {
+        int lead = 0;
+        while (lead < str.length() && str.charAt(lead) <= ' ') {
+            lead++;
         }
+        if (lead > 0) {
+            str = str.substring(lead);
+        }
+        // not trimmed at the end, so that the body can be taken as long as Content-Length
+        SipParser par = new SipParser(str, 0);
+        parseFirstLine(par);
 
         headers = new ArrayList();
         Header h = par.getHeader();
@@ -147,15 +165,92 @@ public abstract class BaseMessageOtp extends BaseMessage {
             headers.add(h);
             h = par.getHeader();
         }
+        parseBody(str, par.getPos(), -1);
+    }
+
+    /**
+     * Parses the Message from raw bytes.
+     * <p/> The header lines are split by a SipHeaderScanner in a single pass over the bytes;
+     * messages with non-ASCII or malformed headers are parsed as a String.
+     *
+     * @param data
+     * @param offset
+     * @param len
+     */
+    private void parseIt(final byte[] data, final int offset, final int len) {
+        final SipHeaderScanner scanner = new SipHeaderScanner();
+        scanner.scan(data, offset, len);
+        parseIt(data, offset, len, scanner);
+    }
+
+    private void parseIt(final byte[] data, final int offset, final int len, final SipHeaderScanner scanner) {
+        final String str = new String(data, offset, len);
+        final int n = scanner.getHeaderCount();
+        // the String parser trims the message, so leading white spaces would shift the positions
+        if (!scanner.isAscii() || !scanner.isWellFormed() || len == 0 || (data[offset] & 0xFF) <= ' ') {
+            parseIt(str);
+            return;
+        }
+        SipParser par = new SipParser(str, 0);
+        parseFirstLine(par);
+        if (par.getPos() != scanner.getHeadersBegin() - offset) {
+            init();
+            parseIt(str);
+            return;
+        }
+
+        headers = new ArrayList<Header>(n + 4);
+        for (int i = 0; i < n; i++) {
+            headers.add(new Header(str.substring(scanner.getNameBegin(i) - offset, scanner.getNameEnd(i) - offset),
+                    str.substring(scanner.getValueBegin(i) - offset, scanner.getValueEnd(i) - offset)));
+        }
+        final int bodyBegin = scanner.getBodyBegin();
+        int bodyLength = -1;
+        if (str.length() != len) {
+            // multi-byte chars in the body: Content-Length counts bytes
+            final ContentLengthHeader clh = getContentLengthHeader();
+            if (clh != null) {
+                bodyLength = new String(data, bodyBegin, Math.min(clh.getContentLength(), offset + len - bodyBegin)).length();
+            }
+        }
+        parseBody(str, bodyBegin - offset, bodyLength);
+    }
+
+    /**
+     * Parses the request-line or status-line
+     */
+    private void parseFirstLine(final SipParser par) {
+        final String str = par.getWholeString();
+        if (str.length() > 4 && str.regionMatches(true, 0, "SIP/", 0, 4)) {
+            status_line = par.getStatusLine();
+        } else {
+            request_line = par.getRequestLine();
+        }
+    }
+
+    /**
+     * Sets the body as a view of <i>str</i> starting from <i>begin</i>.
+     * <p/> The body is exactly Content-Length chars (or <i>len</i> chars if not negative) long,
+     * or as long as available; without Content-Length it extends to the last non-blank char.
+     */
+    private void parseBody(final String str, final int begin, int len) {
+        int end;
         ContentLengthHeader clh = getContentLengthHeader();
         if (clh != null) {
-            int len = clh.getContentLength() + 100; // TODO Remove Patch for Buggy SIP Servers
-            body = par.getString(len);
+            if (len < 0) {
+                len = clh.getContentLength();
+            }
+            end = (len < 0 || begin + len > str.length()) ? str.length() : begin + len;
         } else if (getContentTypeHeader() != null) {
-            body = par.getRemainingString();
-            if (body.length() == 0) {
-                body = null;
+            end = str.length();
+            while (end > begin && str.charAt(end - 1) <= ' ') {
+                end--;
             }
+        } else {
+            return;
+        }
+        if (begin < end) {
+            body = new MessageBody(str, begin, end);
         }
     }
 
@@ -163,18 +258,31 @@ public abstract class BaseMessageOtp extends BaseMessage {
      * Gets string representation of Message
      */
     public String toString() {
-        StringBuilder str = new StringBuilder();
+        return toString(false);
+    }
+
+    /**
+     * Gets string representation of Message, with header names in compact form (if <i>compact</i>)
+     * and with no space after colons nor line after the body
+     *
+     * @param compact
+     * @return
+     */
+    public String toString(boolean compact) {
+        StringBuilder str = new StringBuilder(256 + (body != null ? body.length() : 0));
         if (request_line != null) {
             str.append(request_line.toString());
         } else if (status_line != null) {
             str.append(status_line.toString());
         }
-        for (Object header : headers) str.append(header.toString());
+        for (Header header : headers) header.appendTo(str, compact);
         str.append("\r\n");
         if (body != null) {
-            str.append(body);
+            body.appendTo(str);
+        }
+        if (!compact) {
+            str.append("\r\n");
         }
-        str.append("\r\n");
         return str.toString();
     }
 
@@ -534,20 +642,36 @@ public abstract class BaseMessageOtp extends BaseMessage {
             body = body.trim();
             setContentTypeHeader(new ContentTypeHeader(content_type));
             setContentLengthHeader(new ContentLengthHeader(body.length()));
-            this.body = body;
+            this.body = new MessageBody(body);
         } else {
             setContentLengthHeader(new ContentLengthHeader(0));
             this.body = null;
         }
     }
 
+    /**
+     * Sets the body, leaving the Content-Type and Content-Length headers to the caller
+     */
+    void setBodyView(MessageBody body) {
+        this.body = body;
+    }
+
     /**
      * Gets message body. The end of body is evaluated
      * from the Content-Length header if present (SIP-RFC compliant),
      * or from the end of message if no Content-Length header is present (non-SIP-RFC compliant)
      */
     public String getBody() {
-        return this.body;
+        return (body != null) ? body.toString() : null;
+    }
+
+    /**
+     * Gets message body as a view of the parsed message, without copying it
+     *
+     * @return the body, or null
+     */
+    public CharSequence getBodyView() {
+        return body;
     }
 
     /**
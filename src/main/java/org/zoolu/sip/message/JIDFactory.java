@@ -29,20 +29,56 @@ package org.zoolu.sip.message;
 
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 
-import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class JIDFactory turns strings into JIDs through the registered JIDFormatters, and caches the results.
+ * <p/> The cache is a bounded LRU weighted by the length of the keys and values. A hit is a single lookup;
+ * on a miss the formatters run under one of a few striped locks, so concurrent misses for the
+ * same string prepare it only once.
+ */
 public class JIDFactory {
 
+    /**
+     * Default maximum total length of the cached strings
+     */
+    public static final int DEFAULT_MAX_WEIGHT = 1 << 20;
+
+    private static final int STRIPES = 32;
+
+    private static final JIDFactory jidFactory = new JIDFactory();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
     private final ConcurrentLinkedHashMap<String, String> jidCache = new ConcurrentLinkedHashMap.Builder<String, String>()
-            .maximumWeightedCapacity(4000)
+            .maximumWeightedCapacity(DEFAULT_MAX_WEIGHT)
+            .weigher(new EntryWeigher<String, String>() {
+                public int weightOf(String key, String value) {
+                    // the value is usually the key itself
+                    return Math.max(1, key == value ? key.length() : key.length() + value.length());
+                }
+            })
+            .listener(new EvictionListener<String, String>() {
+                public void onEviction(String key, String value) {
+                    evictions.incrementAndGet();
+                }
+            })
             .build();
 
-    private static JIDFactory jidFactory;
-    private final List<JIDFormatter> jidPrepFilters = new ArrayList<JIDFormatter>();
+    private final Object[] locks = new Object[STRIPES];
+    private final List<JIDFormatter> jidPrepFilters = new CopyOnWriteArrayList<JIDFormatter>();
 
     private JIDFactory() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
 
     /*only for testing purposes
@@ -52,30 +88,49 @@ public class JIDFactory {
     }
 
     public static JIDFactory getInstance() {
-        if (jidFactory == null) {
-            jidFactory = new JIDFactory();
-        }
         return jidFactory;
     }
 
-    public String getJID(String str) throws IllegalArgumentException {
-        if (jidCache.containsKey(str)) {
-            return jidCache.get(str);
+    public String getJID(final String str) throws IllegalArgumentException {
+        String jid = jidCache.get(str);
+        if (jid != null) {
+            hits.incrementAndGet();
+            return jid;
         }
-
-        for (final JIDFormatter filter : jidPrepFilters) {
-            str = filter.prepForJID(str);
+        final int h = str.hashCode();
+        synchronized (locks[(h ^ (h >>> 16)) & (STRIPES - 1)]) {
+            jid = jidCache.get(str);
+            if (jid != null) {
+                hits.incrementAndGet();
+                return jid;
+            }
+            misses.incrementAndGet();
+            jid = str;
+            for (final JIDFormatter filter : jidPrepFilters) {
+                jid = filter.prepForJID(jid);
+            }
+            if (jid.equals(str)) {
+                jid = str;
+            }
+            jidCache.put(str, jid);
         }
-
-        final String jidEntry = new String(str);
-        jidCache.put(str, jidEntry);
-        return jidEntry;
+        return jid;
     }
 
     public void addJIDPrepFilter(final JIDFormatter filter) {
         jidPrepFilters.add(filter);
     }
 
+    /**
+     * Removes a filter added by addJIDPrepFilter; the JIDs it already prepared stay cached
+     *
+     * @param filter
+     * @return whether the filter was there
+     */
+    public boolean removeJIDPrepFilter(final JIDFormatter filter) {
+        return jidPrepFilters.remove(filter);
+    }
+
     public String getJID(final String node, final String domain, final String resource) throws IllegalArgumentException {
 
         final StringBuilder str = new StringBuilder();
@@ -99,6 +154,60 @@ public class JIDFactory {
 
     }
 
+    /**
+     * Sets the maximum total length of the cached strings
+     *
+     * @param maxWeight
+     */
+    public void setMaximumWeight(long maxWeight) {
+        jidCache.setCapacity(maxWeight);
+    }
+
+    /**
+     * Gets the total length of the cached strings
+     *
+     * @return
+     */
+    public long getWeightedSize() {
+        return jidCache.weightedSize();
+    }
+
+    /**
+     * Gets the number of cached JIDs
+     *
+     * @return
+     */
+    public int size() {
+        return jidCache.size();
+    }
+
+    /**
+     * Gets the number of JIDs found in the cache
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of JIDs prepared by the formatters
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of JIDs evicted from the cache
+     *
+     * @return
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
     public void reset() {
         jidCache.clear();
     }
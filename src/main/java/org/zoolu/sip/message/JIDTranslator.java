@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.message;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class JIDTranslator translates between SIP addresses and JIDs in both directions, for the gateway.
+ * <p/> From a From or To header value it gets the JID user@host/tag (as Participants does), and from
+ * a JID it gets the SIP address and tag back. Both directions share the same immutable Entry, kept in
+ * bounded LRU caches.
+ * <p/> The entries of the participants of an active session can be pinned: pinned entries are always
+ * found, however many other addresses go through the caches, until the session is released. This
+ * holds in both directions: the header values translated to a pinned JID are pinned with it.
+ */
+public class JIDTranslator {
+
+    /**
+     * Default maximum number of cached entries, in each direction
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final JIDTranslator instance = new JIDTranslator(DEFAULT_CAPACITY);
+
+    /**
+     * The translation of a JID, immutable
+     */
+    public static final class Entry {
+        private final String jid;
+        private final String user;
+        private final String host;
+        private final String tag;
+        private final SipURL url;
+
+        Entry(String jid) {
+            final int slash = jid.indexOf('/');
+            final int end = slash < 0 ? jid.length() : slash;
+            final int at = jid.indexOf('@');
+            final int node = (at >= 0 && at < end) ? at : -1;
+            this.jid = jid;
+            this.user = node < 0 ? null : jid.substring(0, node);
+            this.host = jid.substring(node + 1, end);
+            this.tag = slash < 0 ? null : jid.substring(slash + 1);
+            this.url = new SipURL(user, host);
+        }
+
+        /**
+         * Gets the JID, e.g. user@host/tag
+         *
+         * @return
+         */
+        public String getJID() {
+            return jid;
+        }
+
+        /**
+         * Gets the JID without resource, i.e. user@host
+         *
+         * @return
+         */
+        public String getBareJID() {
+            return tag == null ? jid : jid.substring(0, jid.length() - tag.length() - 1);
+        }
+
+        /**
+         * Gets the user of the SIP address, or null
+         *
+         * @return
+         */
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * Gets the host of the SIP address
+         *
+         * @return
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Gets the tag, i.e. the resource of the JID, or null
+         *
+         * @return
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * Gets a new SipURL sip:user@host
+         *
+         * @return
+         */
+        public SipURL getSipURL() {
+            return new SipURL(url);
+        }
+
+        /**
+         * Gets a new NameAddress &lt;sip:user@host&gt;
+         *
+         * @return
+         */
+        public NameAddress getNameAddress() {
+            return new NameAddress(new SipURL(url));
+        }
+    }
+
+    /**
+     * A pinned Entry, with the number of sessions pinning it and the header values translated to it
+     */
+    private static final class Pin {
+        final Entry entry;
+        final List<String> values = new ArrayList<String>(2);
+        int count;
+
+        Pin(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final ConcurrentLinkedHashMap<String, Entry> byValue;
+    private final ConcurrentLinkedHashMap<String, Entry> byJid;
+    private final ConcurrentHashMap<String, Pin> pinned = new ConcurrentHashMap<String, Pin>();
+    private final ConcurrentHashMap<String, Pin> pinnedValues = new ConcurrentHashMap<String, Pin>();
+    private final Map<String, List<Entry>> sessions = new HashMap<String, List<Entry>>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new JIDTranslator
+     *
+     * @param capacity maximum number of cached entries, in each direction
+     */
+    public JIDTranslator(int capacity) {
+        byValue = new ConcurrentLinkedHashMap.Builder<String, Entry>()
+                .maximumWeightedCapacity(capacity)
+                .build();
+        byJid = new ConcurrentLinkedHashMap.Builder<String, Entry>()
+                .maximumWeightedCapacity(capacity)
+                .build();
+    }
+
+    /**
+     * Gets the shared JIDTranslator
+     *
+     * @return
+     */
+    public static JIDTranslator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the Entry of a From or To header value
+     *
+     * @param hvalue
+     * @return the Entry, or null if the value has no valid address
+     */
+    public Entry getEntryForAddress(String hvalue) {
+        Entry e = byValue.get(hvalue);
+        if (e == null) {
+            final Pin pin = pinnedValues.get(hvalue);
+            if (pin != null) {
+                e = pin.entry;
+            }
+        }
+        if (e != null) {
+            hits.incrementAndGet();
+            return e;
+        }
+        misses.incrementAndGet();
+        final String jid = Participants.getJID(hvalue, new StringBuilder(hvalue.length()));
+        if (jid == null) {
+            return null;
+        }
+        e = getEntry(jid);
+        byValue.put(hvalue, e);
+        if (pinned.containsKey(jid)) {
+            pinValue(hvalue, jid);
+        }
+        return e;
+    }
+
+    /**
+     * Gets the JID of a From or To header value
+     *
+     * @param hvalue
+     * @return the JID, or null if the value has no valid address
+     */
+    public String getJID(String hvalue) {
+        final Entry e = getEntryForAddress(hvalue);
+        return e == null ? null : e.jid;
+    }
+
+    /**
+     * Gets the Entry of a JID
+     *
+     * @param jid
+     * @return
+     */
+    public Entry getEntry(String jid) {
+        Entry e = byJid.get(jid);
+        if (e != null) {
+            return e;
+        }
+        final Pin pin = pinned.get(jid);
+        if (pin != null) {
+            return pin.entry;
+        }
+        e = new Entry(jid);
+        final Entry prev = byJid.putIfAbsent(jid, e);
+        return prev != null ? prev : e;
+    }
+
+    /**
+     * Gets a new NameAddress for a JID
+     *
+     * @param jid
+     * @return
+     */
+    public NameAddress getNameAddress(String jid) {
+        return getEntry(jid).getNameAddress();
+    }
+
+    /**
+     * Pins the Entry of a JID for a session, so that it is not evicted until the session is released
+     *
+     * @param session the session id, e.g. the Call-ID
+     * @param jid
+     * @return the Entry
+     */
+    public synchronized Entry pin(String session, String jid) {
+        Pin pin = pinned.get(jid);
+        if (pin == null) {
+            pin = new Pin(getEntry(jid));
+            pinned.put(jid, pin);
+        }
+        pin.count++;
+        List<Entry> entries = sessions.get(session);
+        if (entries == null) {
+            entries = new ArrayList<Entry>(2);
+            sessions.put(session, entries);
+        }
+        entries.add(pin.entry);
+        return pin.entry;
+    }
+
+    /**
+     * Pins the Entry of a From or To header value for a session, in both directions,
+     * so that neither is evicted until the session is released
+     *
+     * @param session the session id, e.g. the Call-ID
+     * @param hvalue
+     * @return the Entry, or null if the value has no valid address
+     */
+    public synchronized Entry pinAddress(String session, String hvalue) {
+        final Entry e = getEntryForAddress(hvalue);
+        if (e == null) {
+            return null;
+        }
+        final Entry pinnedEntry = pin(session, e.jid);
+        pinValue(hvalue, e.jid);
+        return pinnedEntry;
+    }
+
+    /**
+     * Records a header value translated to a JID, if the JID is still pinned
+     *
+     * @param hvalue
+     * @param jid
+     */
+    private synchronized void pinValue(String hvalue, String jid) {
+        final Pin pin = pinned.get(jid);
+        if (pin != null && !pinnedValues.containsKey(hvalue)) {
+            pin.values.add(hvalue);
+            pinnedValues.put(hvalue, pin);
+        }
+    }
+
+    /**
+     * Unpins the entries pinned for a session
+     *
+     * @param session
+     */
+    public synchronized void release(String session) {
+        final List<Entry> entries = sessions.remove(session);
+        if (entries == null) {
+            return;
+        }
+        for (Entry e : entries) {
+            final Pin pin = pinned.get(e.jid);
+            if (pin != null && --pin.count == 0) {
+                pinned.remove(e.jid);
+                for (String v : pin.values) {
+                    pinnedValues.remove(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the Entry of a JID is pinned
+     *
+     * @param jid
+     * @return
+     */
+    public boolean isPinned(String jid) {
+        return pinned.containsKey(jid);
+    }
+
+    /**
+     * Gets the number of header values found in the cache
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of header values not found in the cache
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of cached JIDs, not counting pinned ones
+     *
+     * @return
+     */
+    public int size() {
+        return byJid.size();
+    }
+}
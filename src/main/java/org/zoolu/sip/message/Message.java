@@ -28,6 +28,7 @@
 package org.zoolu.sip.message;
 
 import org.zoolu.sip.header.*;
+import org.zoolu.sip.provider.SipHeaderScanner;
 
 import java.net.DatagramPacket;
 import java.net.SocketAddress;
@@ -73,13 +74,6 @@ public class Message extends BaseMessageOtp {
      */
     public Message(String str) {
         super(str);
-        try {
-            if (str != null && str.length() > 10) {
-                participants = Participants.getParticipants(this);
-            }
-        } catch (SipParsingException e) {
-            log.warn("Error Getting Participants.", e);
-        }
     }
 
     /**
@@ -91,13 +85,18 @@ public class Message extends BaseMessageOtp {
      */
     public Message(byte[] buff, int offset, int len) {
         super(buff, offset, len);
+    }
 
-        try {
-            participants = Participants.getParticipants(this);
-        } catch (SipParsingException e) {
-            log.warn("Error Getting Participants.", e);
-        }
-
+    /**
+     * Costructs a new Message from bytes already split by <i>scanner</i>
+     *
+     * @param buff
+     * @param offset
+     * @param len
+     * @param scanner
+     */
+    public Message(byte[] buff, int offset, int len, SipHeaderScanner scanner) {
+        super(buff, offset, len, scanner);
     }
 
     /**
@@ -108,13 +107,6 @@ public class Message extends BaseMessageOtp {
     public Message(DatagramPacket packet) {
         super(packet);
         setSendTo(packet.getSocketAddress());
-        try {
-            participants = Participants.getParticipants(this);
-        } catch (SipParsingException e) {
-            log.warn("Error Getting Participants.", e);
-        }
-
-
     }
 
     /**
@@ -124,13 +116,8 @@ public class Message extends BaseMessageOtp {
      */
     public Message(Message msg) {
         super(msg);
-        try {
-            participants = Participants.getParticipants(this);
-        } catch (SipParsingException e) {
-            log.error("Error Getting Participants.", e);
-        }
-
-
+        // same From and To
+        participants = msg.participants;
     }
 
     /**
@@ -395,6 +382,12 @@ public class Message extends BaseMessageOtp {
         this.arrivedAt = arrivedAt;
     }
 
+    /**
+     * Gets the Participants of the Message, extracted from From and To on the first call
+     *
+     * @return
+     * @throws SipParsingException
+     */
     public Participants getParticipants() throws SipParsingException {
         if (participants == null) {
             participants = Participants.getParticipants(this);
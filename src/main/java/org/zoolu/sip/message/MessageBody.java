@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.message;
+
+/**
+ * Class MessageBody is an immutable view of a message body within the String it has been parsed from.
+ * <p/> No chars are copied until toString() is called (and then only once), so messages whose body
+ * is never looked at do not pay for it.
+ */
+public final class MessageBody implements CharSequence {
+
+    private final String source;
+    private final int begin;
+    private final int end;
+    private String string;
+
+    /**
+     * Creates a MessageBody of chars <i>begin</i> to <i>end</i> of <i>source</i>
+     *
+     * @param source
+     * @param begin
+     * @param end
+     */
+    public MessageBody(String source, int begin, int end) {
+        if (begin < 0 || end > source.length() || begin > end) {
+            throw new IndexOutOfBoundsException("Body [" + begin + "," + end + ") out of " + source.length() + " chars");
+        }
+        this.source = source;
+        this.begin = begin;
+        this.end = end;
+        if (begin == 0 && end == source.length()) {
+            string = source;
+        }
+    }
+
+    /**
+     * Creates a MessageBody of the whole <i>body</i>
+     *
+     * @param body
+     */
+    public MessageBody(String body) {
+        this(body, 0, body.length());
+    }
+
+    public int length() {
+        return end - begin;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= end - begin) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return source.charAt(begin + index);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.end - begin || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + "," + end + ") out of " + (this.end - begin) + " chars");
+        }
+        return new MessageBody(source, begin + start, begin + end);
+    }
+
+    /**
+     * Appends the body to <i>sb</i> without materializing it
+     *
+     * @param sb
+     * @return
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return (string != null) ? sb.append(string) : sb.append(source, begin, end);
+    }
+
+    public String toString() {
+        String s = string;
+        if (s == null) {
+            s = source.substring(begin, end);
+            string = s;
+        }
+        return s;
+    }
+}
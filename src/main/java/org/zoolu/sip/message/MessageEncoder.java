@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class MessageEncoder serializes Messages for the wire, choosing between the extended and the compact
+ * form of the headers (RFC 3261, 7.3.3).
+ * <p/> A size-aware MessageEncoder uses the compact form only for messages that would otherwise be
+ * larger than a threshold, e.g. INVITEs with large SDP bodies that would be fragmented over UDP.
+ * The size is that of the encoded bytes, as sent by SipChannel.send(Message, SocketAddress).
+ * MessageEncoders are immutable and thread-safe.
+ */
+public class MessageEncoder {
+
+    /**
+     * Default threshold, in bytes, below a typical 1500 bytes MTU minus IP/UDP headers and tunneling overhead
+     */
+    public static final int DEFAULT_MTU_THRESHOLD = 1300;
+
+    /**
+     * Encoder always using the extended form
+     */
+    public static final MessageEncoder EXTENDED = new MessageEncoder(Integer.MAX_VALUE);
+    /**
+     * Encoder always using the compact form
+     */
+    public static final MessageEncoder COMPACT = new MessageEncoder(0);
+    /**
+     * Encoder using the compact form only above DEFAULT_MTU_THRESHOLD
+     */
+    public static final MessageEncoder SIZE_AWARE = new MessageEncoder(DEFAULT_MTU_THRESHOLD);
+
+    private final int threshold;
+
+    /**
+     * Creates a MessageEncoder switching to the compact form for messages longer than <i>threshold</i> bytes
+     *
+     * @param threshold
+     */
+    public MessageEncoder(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gets the threshold above which the compact form is used
+     *
+     * @return
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Encodes a message as a String
+     *
+     * @param msg
+     * @return
+     */
+    public String encode(BaseMessageOtp msg) {
+        if (threshold <= 0) {
+            return msg.toString(true);
+        }
+        final String str = msg.toString(false);
+        return (encodedLength(str) > threshold) ? msg.toString(true) : str;
+    }
+
+    /**
+     * Encodes a message as bytes
+     *
+     * @param msg
+     * @return
+     */
+    public byte[] encodeBytes(BaseMessageOtp msg) {
+        if (threshold <= 0) {
+            return msg.toString(true).getBytes();
+        }
+        final byte[] data = msg.toString(false).getBytes();
+        return (data.length > threshold) ? msg.toString(true).getBytes() : data;
+    }
+
+    /**
+     * Encodes a message in a ByteBuffer ready to be sent
+     *
+     * @param msg
+     * @return
+     */
+    public ByteBuffer encodeBuffer(BaseMessageOtp msg) {
+        return ByteBuffer.wrap(encodeBytes(msg));
+    }
+
+    /**
+     * Gets the number of bytes of <i>str</i> once encoded, without encoding pure ASCII strings
+     *
+     * @param str
+     * @return
+     */
+    private static int encodedLength(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) >= 0x80) {
+                return str.getBytes().length;
+            }
+        }
+        return str.length();
+    }
+}
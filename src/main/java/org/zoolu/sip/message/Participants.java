@@ -28,18 +28,26 @@
 package org.zoolu.sip.message;
 
 import org.apache.log4j.Logger;
-import org.zoolu.sip.address.NameAddress;
-import org.zoolu.sip.address.SipURL;
-import org.zoolu.sip.header.FromHeader;
-import org.zoolu.sip.header.ToHeader;
-
+import org.zoolu.sip.header.Header;
+import org.zoolu.sip.header.SipHeaders;
 
+/**
+ * The initiator and responder JIDs of a Message, i.e. user@host/tag of its From and To.
+ * <p/> Each JID is made in one pass over the raw header value into a per-thread StringBuilder,
+ * without parsing NameAddress nor SipURL; user and host are lowercased as SipURL does.
+ */
 public class Participants {
 
     final private static Logger log = Logger.getLogger(Participants.class);
     private final String initiator;
     private final String responder;
 
+    private static final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>() {
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+
     public Participants(final String initiator, final String responder) {
         this.initiator = initiator;
         this.responder = responder;
@@ -55,76 +63,179 @@ public class Participants {
 
     public static Participants getParticipants(final Message msg) throws SipParsingException {
 
-        try {
-
-            final FromHeader fHeader = msg.getFromHeader();
-            final ToHeader tHeader = msg.getToHeader();
+        Header fHeader = msg.getHeader(SipHeaders.From);
+        if (fHeader == null) {
+            fHeader = msg.getHeader(SipHeaders.From_short);
+        }
+        Header tHeader = msg.getHeader(SipHeaders.To);
+        if (tHeader == null) {
+            tHeader = msg.getHeader(SipHeaders.To_short);
+        }
 
-            if (fHeader == null || tHeader == null) {
-                throw new SipParsingException("Invalid From/To Headers");
-            }
+        if (fHeader == null || tHeader == null) {
+            throw new SipParsingException("Invalid From/To Headers");
+        }
 
-            final NameAddress fAddr = fHeader.getNameAddress();
-            final NameAddress tAddr = tHeader.getNameAddress();
+        try {
+            final StringBuilder sb = builders.get();
+            final String initiator = getJID(fHeader.getValue(), sb);
+            final String responder = getJID(tHeader.getValue(), sb);
 
-            if (fAddr == null || tAddr == null) {
+            if (initiator == null || responder == null) {
                 throw new SipParsingException("Invalid From/To Addresses");
             }
 
-            SipURL fURL = fAddr.getBareAddress();
-            SipURL tURL = tAddr.getBareAddress();
+            return new Participants(initiator, responder);
 
-            if (fURL == null || tURL == null) {
-                throw new SipParsingException("Invalid From/To URLs");
-            }
+        } catch (RuntimeException e) {
+            log.warn("Error getting Participants for Message");
+            throw new SipParsingException(e.toString());
+        }
+    }
 
-            final String f[] = fURL.toString().split(":");
-            final String t[] = tURL.toString().split(":");
+    /**
+     * Gets the JID user@host/tag of a From or To header value
+     *
+     * @param value
+     * @param sb    the StringBuilder to use
+     * @return the JID, or null if the value has no valid address
+     */
+    static String getJID(final String value, final StringBuilder sb) {
+        final int len = value.length();
+        int uriBegin = -1;
+        int uriEnd = -1;
+        int params;
+
+        // name-addr, with a possibly quoted display name
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                for (i++; i < len && value.charAt(i) != '"'; i++) {
+                    if (value.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if (c == '<') {
+                uriBegin = i + 1;
+                uriEnd = value.indexOf('>', uriBegin);
+                if (uriEnd < 0) {
+                    return null;
+                }
+                break;
+            }
+        }
+        if (uriBegin >= 0) {
+            params = uriEnd + 1;
+        } else {
+            // addr-spec, the parameters belong to the header
+            uriBegin = 0;
+            while (uriBegin < len && value.charAt(uriBegin) <= ' ') {
+                uriBegin++;
+            }
+            uriEnd = value.indexOf(';', uriBegin);
+            if (uriEnd < 0) {
+                uriEnd = len;
+            }
+            params = uriEnd;
+            while (uriEnd > uriBegin && value.charAt(uriEnd - 1) <= ' ') {
+                uriEnd--;
+            }
+        }
 
-            if (f.length < 2 && t.length < 2) {
+        // skip the scheme
+        int begin = value.indexOf(':', uriBegin);
+        if (begin < 0 || begin >= uriEnd) {
+            return null;
+        }
+        begin++;
+
+        sb.setLength(0);
+        final int at = value.indexOf('@', begin);
+        if (at >= 0 && at < uriEnd) {
+            int userEnd = value.indexOf(':', begin);
+            if (userEnd < 0 || userEnd > at) {
+                userEnd = at;
+            }
+            appendLowerCase(sb, value, begin, userEnd);
+            sb.append('@');
+            begin = at + 1;
+        }
+        int end = begin;
+        if (end < uriEnd && value.charAt(end) == '[') {
+            end = value.indexOf(']', end);
+            if (end < 0 || end >= uriEnd) {
                 return null;
             }
-
-            final String from = f[1];
-            final String to = t[1];
-
-            String fResource = "";
-            String tResource = "";
-
-            if (fHeader.getTag() != null) {
-                fResource = "/" + fHeader.getTag();
+            end++;
+        } else {
+            while (end < uriEnd && !isHostTerminator(value.charAt(end))) {
+                end++;
             }
+        }
+        if (end == begin) {
+            return null;
+        }
+        appendLowerCase(sb, value, begin, end);
 
-            if (tHeader.getTag() != null) {
-                tResource = "/" + tHeader.getTag();
+        // tag
+        for (int i = value.indexOf(';', params); i >= 0; i = value.indexOf(';', i + 1)) {
+            int j = skipWsp(value, i + 1);
+            if (!value.regionMatches(true, j, "tag", 0, 3)) {
+                continue;
+            }
+            j = skipWsp(value, j + 3);
+            if (j >= len || value.charAt(j) != '=') {
+                continue;
             }
+            j = skipWsp(value, j + 1);
+            int k = j;
+            while (k < len && value.charAt(k) != ';' && value.charAt(k) > ' ') {
+                k++;
+            }
+            if (k > j) {
+                sb.append('/').append(value, j, k);
+            }
+            break;
+        }
 
-            final String initiator = JIDFactory.getInstance().getJID(new StringBuilder().append(from).append(fResource).toString());
-            final String responder = JIDFactory.getInstance().getJID(new StringBuilder().append(to).append(tResource).toString());
+        return JIDFactory.getInstance().getJID(sb.toString());
+    }
 
-            return new Participants(initiator, responder);
+    private static boolean isHostTerminator(char c) {
+        return c == ':' || c == ';' || c == '?';
+    }
 
-        } catch (Throwable e) {
-            log.warn("Error getting Participants for Message");
-            throw new SipParsingException(e.toString());
+    private static int skipWsp(String s, int i) {
+        while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void appendLowerCase(StringBuilder sb, String s, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            } else if (c < 128) {
+                sb.append(c);
+            } else {
+                sb.append(Character.toLowerCase(c));
+            }
         }
     }
 
     public static String getFromJidForResponse(final Message msg) {
 
-        if (msg.getToHeader() == null) {
-            return null;
+        Header tHeader = msg.getHeader(SipHeaders.To);
+        if (tHeader == null) {
+            tHeader = msg.getHeader(SipHeaders.To_short);
         }
 
-        final NameAddress na = msg.getToHeader().getNameAddress();
-
-        if (na == null) {
+        if (tHeader == null) {
             return null;
         }
 
-        final String c = na.getAddress().getUserName();
-        final String server = na.getAddress().getHost();
-
-        return JIDFactory.getInstance().getJID(c, server, msg.getToHeader().getTag());
+        return JIDTranslator.getInstance().getJID(tHeader.getValue());
     }
 }
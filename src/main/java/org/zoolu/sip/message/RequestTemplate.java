@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.message;
+
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.header.*;
+import org.zoolu.sip.provider.SipStack;
+
+/**
+ * Class RequestTemplate holds the parts of a SIP request that do not change from one request to
+ * the next for a given method and local endpoint: the Via sent-by, Max-Forwards, Contact, Expires
+ * and User-Agent. They are formatted once when the template is built.
+ * <p/> Each request only fills in the variable slots: Request-URI, branch, To, From, tags, Call-ID, CSeq
+ * and body. A request can be created as a Message, whose headers are appended in order without
+ * any lookup, or encoded straight into its wire form without creating a Message at all.
+ * <p/> Expires and User-Agent are taken from SipStack when the template is built.
+ * RequestTemplates are immutable and thread-safe.
+ */
+public class RequestTemplate {
+
+    private final String method;
+    private final String viaPrefix;
+    private final String maxForwards;
+    private final String contact;
+    private final String expires;
+    private final String userAgent;
+    /**
+     * Wire form of Max-Forwards
+     */
+    private final String block1;
+    /**
+     * Wire form of Contact, Expires and User-Agent
+     */
+    private final String block2;
+
+    /**
+     * Creates a new RequestTemplate
+     *
+     * @param method   method name
+     * @param proto    Via transport protocol
+     * @param viaAddr  Via address
+     * @param hostPort Via port number
+     * @param rport    whether to add the rport parameter to Via
+     * @param contact  Contact NameAddress (if null, no ContactHeader is added)
+     */
+    public RequestTemplate(String method, String proto, String viaAddr, int hostPort, boolean rport, NameAddress contact) {
+        this.method = method;
+        ViaHeader via = new ViaHeader(proto, viaAddr, hostPort);
+        if (rport) {
+            via.setRport();
+        }
+        viaPrefix = via.getValue() + ";branch=";
+        maxForwards = new MaxForwardsHeader(70).getValue();
+        this.contact = (contact != null) ? new ContactHeader(contact).getValue() : null;
+        expires = new ExpiresHeader(String.valueOf(SipStack.default_expires)).getValue();
+        userAgent = SipStack.uaInfo;
+
+        block1 = new Header(SipHeaders.Max_Forwards, maxForwards).toString();
+        final StringBuilder sb = new StringBuilder();
+        if (this.contact != null) {
+            sb.append(new Header(SipHeaders.Contact, this.contact));
+        }
+        sb.append(new Header(SipHeaders.Expires, expires));
+        if (userAgent != null) {
+            sb.append(new Header(SipHeaders.User_Agent, userAgent));
+        }
+        block2 = sb.toString();
+    }
+
+    /**
+     * Gets the method name
+     *
+     * @return
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Creates a SIP request message.
+     *
+     * @param requestUri request-uri
+     * @param to         ToHeader NameAddress
+     * @param from       FromHeader NameAddress
+     * @param callId     Call-ID value
+     * @param cseq       CSeq value
+     * @param localTag   tag in FromHeader
+     * @param remoteTag  tag in ToHeader (if null, no tag is added)
+     * @param branch     branch value (if null, it is derived from the Call-ID)
+     * @param body       body (if null, no body is added)
+     * @return
+     */
+    public Message createRequest(SipURL requestUri, NameAddress to, NameAddress from, String callId, long cseq, String localTag, String remoteTag, String branch, String body) {
+        Message req = new Message();
+        req.setRequestLine(new RequestLine(method, requestUri));
+        req.addHeader(new Header(SipHeaders.Via, viaPrefix + branch(branch, callId)), false);
+        req.addHeader(new Header(SipHeaders.Max_Forwards, maxForwards), false);
+        req.addHeader(new Header(SipHeaders.To, endPoint(to, remoteTag)), false);
+        req.addHeader(new Header(SipHeaders.From, endPoint(from, localTag)), false);
+        req.addHeader(new Header(SipHeaders.CallID, callId), false);
+        req.addHeader(new Header(SipHeaders.CSeq, cseq + " " + method), false);
+        if (contact != null) {
+            req.addHeader(new Header(SipHeaders.Contact, contact), false);
+        }
+        req.addHeader(new Header(SipHeaders.Expires, expires), false);
+        if (userAgent != null) {
+            req.addHeader(new Header(SipHeaders.User_Agent, userAgent), false);
+        }
+        if (body != null && body.length() > 0) {
+            body = body.trim();
+            req.addHeader(new Header(SipHeaders.Content_Type, "application/sdp"), false);
+            req.addHeader(new Header(SipHeaders.Content_Length, String.valueOf(body.length())), false);
+            req.setBodyView(new MessageBody(body));
+        } else {
+            req.addHeader(new Header(SipHeaders.Content_Length, "0"), false);
+        }
+        return req;
+    }
+
+    /**
+     * Encodes a SIP request, as createRequest(..).toString() would, without creating a Message.
+     *
+     * @param requestUri request-uri
+     * @param to         ToHeader NameAddress
+     * @param from       FromHeader NameAddress
+     * @param callId     Call-ID value
+     * @param cseq       CSeq value
+     * @param localTag   tag in FromHeader
+     * @param remoteTag  tag in ToHeader (if null, no tag is added)
+     * @param branch     branch value (if null, it is derived from the Call-ID)
+     * @param body       body (if null, no body is added)
+     * @return
+     */
+    public String encode(SipURL requestUri, NameAddress to, NameAddress from, String callId, long cseq, String localTag, String remoteTag, String branch, String body) {
+        final boolean hasBody = body != null && body.length() > 0;
+        if (hasBody) {
+            body = body.trim();
+        }
+        final StringBuilder sb = new StringBuilder(block2.length() + 384 + (hasBody ? body.length() : 0));
+        sb.append(method).append(' ').append(requestUri).append(" SIP/2.0\r\n");
+        sb.append(SipHeaders.Via).append(": ").append(viaPrefix).append(branch(branch, callId)).append("\r\n");
+        sb.append(block1);
+        sb.append(SipHeaders.To).append(": ").append(endPoint(to, remoteTag)).append("\r\n");
+        sb.append(SipHeaders.From).append(": ").append(endPoint(from, localTag)).append("\r\n");
+        sb.append(SipHeaders.CallID).append(": ").append(callId).append("\r\n");
+        sb.append(SipHeaders.CSeq).append(": ").append(cseq).append(' ').append(method).append("\r\n");
+        sb.append(block2);
+        if (hasBody) {
+            sb.append(SipHeaders.Content_Type).append(": application/sdp\r\n");
+            sb.append(SipHeaders.Content_Length).append(": ").append(body.length()).append("\r\n\r\n");
+            sb.append(body);
+        } else {
+            sb.append(SipHeaders.Content_Length).append(": 0\r\n\r\n");
+        }
+        return sb.append("\r\n").toString();
+    }
+
+    private static String branch(String branch, String callId) {
+        return (branch != null) ? branch : BaseMessageFactory.BRANCH_PREFIX + callId;
+    }
+
+    private static String endPoint(NameAddress naddr, String tag) {
+        final String s = naddr.toString();
+        return (tag != null) ? s + ";tag=" + tag : s;
+    }
+}
@@ -30,7 +30,9 @@ package org.zoolu.sip.message;
 import org.apache.log4j.Logger;
 import org.xmpp.jnodes.nio.DatagramListener;
 import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.ListenerDatagramChannelFactory;
 import org.xmpp.jnodes.nio.SelDatagramChannel;
+import org.zoolu.tools.Clock;
 import org.zoolu.tools.Random;
 
 import java.io.IOException;
@@ -42,6 +44,7 @@ import java.nio.ByteBuffer;
 
 public class SipChannel {
     private static final Logger log = Logger.getLogger(SipChannel.class);
+    private static ListenerDatagramChannelFactory channelFactory = SelDatagramChannel.FACTORY;
     private final SocketAddress remoteAddress;
     private final String id;
     private final DatagramListener listener;
@@ -52,6 +55,7 @@ public class SipChannel {
     private long lastReceivedTimestamp;
     private SocketAddress localAddress;
     private ListenerDatagramChannel datagramChannel;
+    private volatile MessageEncoder messageEncoder = MessageEncoder.SIZE_AWARE;
 
     public SipChannel(String id, SocketAddress remoteAddress, String localIP, DatagramListener listener) throws IOException {
         this(id, remoteAddress, localIP, -1, listener);
@@ -62,7 +66,7 @@ public class SipChannel {
         this.remoteAddress = remoteAddress;
         this.localIP = localIP;
         this.localPort = localPort;
-        this.lastSentTimestamp = this.lastReceivedTimestamp = System.currentTimeMillis();
+        this.lastSentTimestamp = this.lastReceivedTimestamp = Clock.currentTimeMillis();
         this.listener = listener;
         activate();
     }
@@ -74,7 +78,7 @@ public class SipChannel {
                     datagramChannel = getFreeChannel(listener);
                 } else {
                     localAddress = new InetSocketAddress(InetAddress.getByName(localIP), localPort);
-                    datagramChannel = SelDatagramChannel.open(listener, localAddress);
+                    datagramChannel = channelFactory.open(listener, localAddress);
                     log.debug("Opening DatagramChannel at " + localIP + ":" + localPort);
                 }
             }
@@ -82,12 +86,36 @@ public class SipChannel {
         }
     }
 
+    /**
+     * Sets the factory used to open the DatagramChannels of new SipChannels.
+     * Defaults to SelDatagramChannel; LoopbackDatagramChannel keeps the traffic in-process.
+     *
+     * @param factory the channel factory
+     */
+    public static void setChannelFactory(ListenerDatagramChannelFactory factory) {
+        channelFactory = factory;
+    }
+
+    public static ListenerDatagramChannelFactory getChannelFactory() {
+        return channelFactory;
+    }
+
     public String getId() {
         return id;
     }
 
+    /**
+     * Sends a Message, encoded by the MessageEncoder of the channel
+     *
+     * @param msg     the message
+     * @param address the destination, or null for the remote address of the channel
+     */
+    public void send(Message msg, SocketAddress address) {
+        send(messageEncoder.encodeBuffer(msg), address);
+    }
+
     public void send(ByteBuffer byteBuffer, SocketAddress address) {
-        lastSentTimestamp = System.currentTimeMillis();
+        lastSentTimestamp = Clock.currentTimeMillis();
         log.debug("Sending UDP Packet...");
         final SocketAddress dest = address != null ? address : remoteAddress;
         try {
@@ -97,6 +125,20 @@ public class SipChannel {
         }
     }
 
+    /**
+     * Sets the MessageEncoder used to send Messages; defaults to MessageEncoder.SIZE_AWARE,
+     * so that only messages above the MTU threshold go out in the compact form
+     *
+     * @param messageEncoder the message encoder
+     */
+    public void setMessageEncoder(MessageEncoder messageEncoder) {
+        this.messageEncoder = messageEncoder;
+    }
+
+    public MessageEncoder getMessageEncoder() {
+        return messageEncoder;
+    }
+
     public void closeDatagramChannel() {
         try {
             datagramChannel.close();
@@ -120,7 +162,7 @@ public class SipChannel {
         for (int tries = 50; channel == null; tries--) {
             port = Random.nextInt(20000) + 4000;
             try {
-                channel = SelDatagramChannel.open(listener, new InetSocketAddress(InetAddress.getByName(localIP), port));
+                channel = channelFactory.open(listener, new InetSocketAddress(InetAddress.getByName(localIP), port));
                 log.debug("Opening DatagramChannel at " + localIP + ":" + port);
                 localPort = port;
             } catch (SocketException e) {
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.message;
+
+import java.io.UnsupportedEncodingException;
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Class StringPrepJIDFormatter is a JIDFormatter applying the XMPP stringprep profiles to the parts
+ * of a JID (RFC 3920): nodeprep to the node, nameprep to the domain and resourceprep to the resource.
+ * <p/> Pure ASCII parts, i.e. almost every JID built from a SIP URI, are checked against lookup tables
+ * in a single pass; when nothing has to be lowercased the input itself is returned, with no allocation.
+ * Only parts with non-ASCII chars go through B.1 mapping, case folding, NFKC normalization and the
+ * prohibited and bidi checks, with the Unicode properties of java.lang.Character.
+ * <p/> Invalid JIDs are refused with an IllegalArgumentException. To be used, the formatter is added
+ * to the JIDFactory with addJIDPrepFilter().
+ */
+public class StringPrepJIDFormatter implements JIDFormatter {
+
+    /**
+     * Maximum length of each part, in UTF-8 bytes
+     */
+    public static final int MAX_PART_LENGTH = 1023;
+
+    // flags of the ASCII table
+    private static final byte NODE = 1;
+    private static final byte DOMAIN = 2;
+    private static final byte RESOURCE = 4;
+    private static final byte UPPER = 8;
+
+    private static final byte[] ASCII = new byte[128];
+
+    static {
+        for (int c = 0x21; c < 0x7F; c++) {
+            ASCII[c] = NODE | RESOURCE;
+        }
+        // space is allowed in resources only
+        ASCII[' '] = RESOURCE;
+        for (char c : "\"&'/:<>@".toCharArray()) {
+            ASCII[c] &= ~NODE;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            ASCII[c] |= UPPER;
+        }
+        for (char c : "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-._[]:".toCharArray()) {
+            ASCII[c] |= DOMAIN;
+        }
+    }
+
+    public String prepForJID(String str) {
+        final int len = str.length();
+        final int slash = str.indexOf('/');
+        final int end = slash < 0 ? len : slash;
+        final int at = str.indexOf('@');
+        final int node = (at >= 0 && at < end) ? at : -1;
+
+        // fast path
+        boolean ascii = true;
+        boolean upper = false;
+        for (int i = 0; i < len && ascii; i++) {
+            final char c = str.charAt(i);
+            if (c >= 128) {
+                ascii = false;
+                break;
+            }
+            final byte flags = ASCII[c];
+            final byte part = i < node ? NODE : (i < end ? DOMAIN : RESOURCE);
+            if (i == node || i == slash) {
+                continue;
+            }
+            if ((flags & part) == 0) {
+                throw new IllegalArgumentException("Invalid char '" + c + "' in JID: " + str);
+            }
+            if ((flags & UPPER) != 0 && part != RESOURCE) {
+                upper = true;
+            }
+        }
+        if (ascii) {
+            checkLength(str, node, end, slash, len);
+            if (!upper) {
+                return str;
+            }
+            final char[] out = str.toCharArray();
+            for (int i = 0; i < end; i++) {
+                if ((ASCII[out[i]] & UPPER) != 0) {
+                    out[i] += 'a' - 'A';
+                }
+            }
+            return new String(out);
+        }
+
+        final StringBuilder sb = new StringBuilder(len);
+        if (node >= 0) {
+            sb.append(nodeprep(str.substring(0, node))).append('@');
+        }
+        sb.append(nameprep(str.substring(node + 1, end)));
+        if (slash >= 0) {
+            sb.append('/').append(resourceprep(str.substring(slash + 1)));
+        }
+        return sb.toString();
+    }
+
+    private static void checkLength(String str, int node, int end, int slash, int len) {
+        if (node == 0 || end - node - 1 <= 0 || slash == len - 1) {
+            throw new IllegalArgumentException("Empty part in JID: " + str);
+        }
+        if (node > MAX_PART_LENGTH || end - node - 1 > MAX_PART_LENGTH || (slash >= 0 && len - slash - 1 > MAX_PART_LENGTH)) {
+            throw new IllegalArgumentException("JID part too long: " + str);
+        }
+    }
+
+    /**
+     * Applies the nodeprep profile
+     *
+     * @param s
+     * @return
+     */
+    public static String nodeprep(String s) {
+        final String r = prep(s, true);
+        for (int i = 0; i < r.length(); i++) {
+            final char c = r.charAt(i);
+            if (c < 128 && (ASCII[c] & NODE) == 0) {
+                throw new IllegalArgumentException("Invalid char '" + c + "' in node: " + s);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Applies the nameprep profile
+     *
+     * @param s
+     * @return
+     */
+    public static String nameprep(String s) {
+        final String r = prep(s, true);
+        for (int i = 0; i < r.length(); i++) {
+            final char c = r.charAt(i);
+            if (c < 128 && (ASCII[c] & DOMAIN) == 0) {
+                throw new IllegalArgumentException("Invalid char '" + c + "' in domain: " + s);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Applies the resourceprep profile
+     *
+     * @param s
+     * @return
+     */
+    public static String resourceprep(String s) {
+        final String r = prep(s, false);
+        for (int i = 0; i < r.length(); i++) {
+            final char c = r.charAt(i);
+            if (c < 128 && (ASCII[c] & RESOURCE) == 0) {
+                throw new IllegalArgumentException("Invalid char '" + c + "' in resource: " + s);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * The stringprep steps (RFC 3454): mapping, normalization, prohibited output and bidi check
+     */
+    private static String prep(String s, boolean fold) {
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (!isMappedToNothing(c)) {
+                sb.append(c);
+            }
+        }
+        String r = sb.toString();
+        if (fold) {
+            r = r.toLowerCase(Locale.ENGLISH);
+        }
+        r = Normalizer.normalize(r, Normalizer.Form.NFKC);
+
+        boolean randAL = false;
+        boolean l = false;
+        for (int i = 0; i < r.length(); ) {
+            final int cp = r.codePointAt(i);
+            if (isProhibited(cp)) {
+                throw new IllegalArgumentException("Prohibited char U+" + Integer.toHexString(cp) + " in " + s);
+            }
+            final byte d = Character.getDirectionality(cp);
+            if (d == Character.DIRECTIONALITY_RIGHT_TO_LEFT || d == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC) {
+                randAL = true;
+            } else if (d == Character.DIRECTIONALITY_LEFT_TO_RIGHT) {
+                l = true;
+            }
+            i += Character.charCount(cp);
+        }
+        if (randAL && (l || !isRandAL(r.codePointAt(0)) || !isRandAL(r.codePointBefore(r.length())))) {
+            throw new IllegalArgumentException("Invalid bidirectional string: " + s);
+        }
+        if (r.length() == 0 || utf8Length(r) > MAX_PART_LENGTH) {
+            throw new IllegalArgumentException("Invalid length: " + s);
+        }
+        return r;
+    }
+
+    private static boolean isRandAL(int cp) {
+        final byte d = Character.getDirectionality(cp);
+        return d == Character.DIRECTIONALITY_RIGHT_TO_LEFT || d == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC;
+    }
+
+    /**
+     * Table B.1: commonly mapped to nothing
+     */
+    private static boolean isMappedToNothing(char c) {
+        return c == 0x00AD || c == 0x034F || c == 0x1806 || (c >= 0x180B && c <= 0x180D)
+                || (c >= 0x200B && c <= 0x200D) || c == 0x2060 || (c >= 0xFE00 && c <= 0xFE0F) || c == 0xFEFF;
+    }
+
+    /**
+     * Tables C.1.2 and C.2 to C.9, approximated by the Unicode categories
+     */
+    private static boolean isProhibited(int cp) {
+        if (cp < 128) {
+            // ASCII chars are checked by each profile
+            return false;
+        }
+        if (Character.isSpaceChar(cp)) {
+            return true;
+        }
+        switch (Character.getType(cp)) {
+            case Character.CONTROL:
+            case Character.FORMAT:
+            case Character.PRIVATE_USE:
+            case Character.SURROGATE:
+            case Character.UNASSIGNED:
+                return true;
+        }
+        // noncharacters
+        return (cp & 0xFFFE) == 0xFFFE || (cp >= 0xFDD0 && cp <= 0xFDEF);
+    }
+
+    private static int utf8Length(String s) {
+        try {
+            return s.getBytes("UTF-8").length;
+        } catch (UnsupportedEncodingException e) {
+            return s.length();
+        }
+    }
+}
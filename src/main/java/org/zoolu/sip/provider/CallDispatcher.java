@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.apache.log4j.Logger;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.zoolu.tools.NamingThreadFactory;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class CallDispatcher is a DatagramListener that shards the received datagrams among
+ * single-threaded workers by Call-ID, before any parsing.
+ * <p/> All the packets of a call are handled by the same worker thread, so per-call state needs
+ * no locking, while different calls are spread over all the workers. The worker handles them in
+ * the order they are passed to the dispatcher, which is the order of arrival only if it is called
+ * from a single thread, e.g. by a SelDatagramChannel with setInlineDelivery(true). With the default
+ * delivery the datagrams reach the dispatcher from a pool of executor threads, possibly already
+ * reordered; enable inline delivery on the channel of the dispatcher, or use the SipPipeline
+ * instead, where arrival order matters.
+ * Packets without Call-ID (e.g. keep-alives) are sharded by source address.
+ * <p/> The received buffer is expected positioned after the datagram, as SelDatagramChannel delivers it.
+ */
+public class CallDispatcher implements DatagramListener {
+
+    private static final Logger log = Logger.getLogger(CallDispatcher.class);
+
+    private final DatagramListener listener;
+    private final ExecutorService[] workers;
+
+    /**
+     * Creates a new CallDispatcher
+     *
+     * @param listener the listener the datagrams are handed to, in the worker threads
+     * @param workers  number of worker threads
+     */
+    public CallDispatcher(final DatagramListener listener, final int workers) {
+        this.listener = listener;
+        this.workers = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = Executors.newSingleThreadExecutor(new NamingThreadFactory("CallDispatcher.Worker-" + i));
+        }
+    }
+
+    public void datagramReceived(final ListenerDatagramChannel channel, final ByteBuffer buffer, final SocketAddress address) {
+        final long h = CallIdHash.hash(buffer, 0, buffer.position());
+        final int shard = (h != CallIdHash.NONE) ? getShard(h) : getShard(address != null ? address.hashCode() : 0);
+        workers[shard].execute(new Runnable() {
+            public void run() {
+                try {
+                    listener.datagramReceived(channel, buffer, address);
+                } catch (Throwable t) {
+                    log.error("Error handling datagram from " + address, t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the worker of hash <i>h</i>
+     *
+     * @param h
+     * @return
+     */
+    public int getShard(long h) {
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) ((h & 0x7fffffffL) % workers.length);
+    }
+
+    /**
+     * Gets the number of workers
+     *
+     * @return
+     */
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Stops the workers, after the pending datagrams are handled
+     */
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.zoolu.tools.ByteHash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class CallIdHash locates the Call-ID header (full or compact form "i") of a raw SIP message
+ * and returns a stable 64-bit hash of its value, without allocating.
+ * <p/> The same Call-ID always gives the same hash, whatever the message, so the hash can be used
+ * to route packets of a call before they are parsed. Folded Call-ID values are hashed up to
+ * the first line end.
+ */
+public final class CallIdHash {
+
+    /**
+     * Returned when the message has no Call-ID
+     */
+    public static final long NONE = 0;
+
+    private CallIdHash() {
+    }
+
+    /**
+     * Gets the hash of the Call-ID of the message between <i>begin</i> and <i>end</i> of <i>buf</i>
+     * (absolute positions; position and limit are not changed)
+     *
+     * @param buf
+     * @param begin
+     * @param end
+     * @return the hash, or NONE if there is no Call-ID header
+     */
+    public static long hash(ByteBuffer buf, int begin, int end) {
+        int i = nextLine(buf, begin, end);
+        while (i < end) {
+            final byte c = buf.get(i);
+            if (c == '\r' || c == '\n') {
+                return NONE; // end of headers
+            }
+            int v = -1;
+            if (c == 'C' || c == 'c') {
+                if (i + 7 <= end && matches(buf, i + 1, "all-id")) {
+                    v = colon(buf, i + 7, end);
+                }
+            } else if (c == 'I' || c == 'i') {
+                v = colon(buf, i + 1, end);
+            }
+            if (v >= 0) {
+                while (v < end && (buf.get(v) == ' ' || buf.get(v) == '\t')) {
+                    v++;
+                }
+                int e = v;
+                while (e < end && buf.get(e) != '\r' && buf.get(e) != '\n') {
+                    e++;
+                }
+                while (e > v && (buf.get(e - 1) == ' ' || buf.get(e - 1) == '\t')) {
+                    e--;
+                }
+                final long h = ByteHash.hash(buf, v, e);
+                return (h == NONE) ? 1 : h;
+            }
+            i = nextLine(buf, i, end);
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the hash of the Call-ID of the message of <i>len</i> bytes of <i>data</i> starting from <i>offset</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return the hash, or NONE if there is no Call-ID header
+     */
+    public static long hash(byte[] data, int offset, int len) {
+        return hash(ByteBuffer.wrap(data), offset, offset + len);
+    }
+
+    /**
+     * Position after the next line end, or <i>end</i>
+     */
+    private static int nextLine(ByteBuffer buf, int i, int end) {
+        while (i < end) {
+            final byte c = buf.get(i++);
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (i < end && buf.get(i) == '\n') {
+                    i++;
+                }
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * If only white spaces and a colon follow <i>i</i>, position after the colon; otherwise -1
+     */
+    private static int colon(ByteBuffer buf, int i, int end) {
+        while (i < end) {
+            final byte c = buf.get(i++);
+            if (c == ':') {
+                return i;
+            }
+            if (c != ' ' && c != '\t') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buf, int i, String lower) {
+        for (int k = 0; k < lower.length(); k++) {
+            if ((buf.get(i + k) | 0x20) != lower.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
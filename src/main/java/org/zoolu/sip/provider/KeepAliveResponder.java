@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+
+package org.zoolu.sip.provider;
+
+import org.apache.log4j.Logger;
+import org.xmpp.jnodes.nio.DatagramFilter;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.SelDatagramChannel;
+import org.zoolu.sip.header.SipHeaders;
+import org.zoolu.tools.IdGenerator;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class KeepAliveResponder answers health-check traffic statelessly, before it is dispatched.
+ * <ul>
+ * <li> out-of-dialog OPTIONS requests (i.e. without To tag) are answered with a 200 OK spliced
+ * from the request bytes and a preformatted status-line and header block, by ResponseSplicer </li>
+ * <li> CRLF keep-alives (datagrams made only of CR and LF) are swallowed; a double-CRLF ping is
+ * answered with a single CRLF pong (RFC 5626, 4.4.1), while a pong, or any other sequence, is never
+ * answered, so that two responders cannot bounce CRLFs at each other </li>
+ * </ul>
+ * Neither ever reaches the listener, so no Message is parsed nor transaction created.
+ * OPTIONS requests that cannot be spliced (e.g. truncated) are passed to the listener as well.
+ * <p/> As a DatagramFilter of a SelDatagramChannel, i.e. <code>channel.setDatagramFilter(new KeepAliveResponder(null))</code>,
+ * it runs on the selector thread of that channel only, and the other datagrams are still dispatched
+ * to the executor. As a DatagramListener it wraps another listener and runs on its thread.
+ */
+public class KeepAliveResponder implements DatagramFilter, DatagramListener {
+
+    private static final Logger log = Logger.getLogger(KeepAliveResponder.class);
+
+    private static final byte[] OPTIONS = "OPTIONS ".getBytes();
+    private static final byte[] PING = {'\r', '\n', '\r', '\n'};
+    private static final byte[] PONG = {'\r', '\n'};
+    private static final byte[] STATUS_LINE = "SIP/2.0 200 OK\r\n".getBytes();
+
+    /**
+     * Default methods listed in the Allow header
+     */
+    public static final String DEFAULT_ALLOW = "INVITE, ACK, CANCEL, BYE, OPTIONS, MESSAGE, SUBSCRIBE, NOTIFY, REFER, INFO";
+
+    private static final ThreadLocal<SipHeaderScanner> scanners = new ThreadLocal<SipHeaderScanner>() {
+        protected SipHeaderScanner initialValue() {
+            return new SipHeaderScanner();
+        }
+    };
+
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[SelDatagramChannel.RECEIVE_BUFFER_SIZE];
+        }
+    };
+
+    private final DatagramListener listener;
+    private final AtomicLong options = new AtomicLong();
+    private final AtomicLong keepAlives = new AtomicLong();
+    private volatile boolean optionsEnabled = true;
+    private volatile boolean keepAliveEnabled = true;
+    private volatile boolean pongEnabled = true;
+    private volatile String allow = DEFAULT_ALLOW;
+    private volatile String accept = "application/sdp";
+    private volatile byte[] tag;
+    /**
+     * Headers following the copied ones, up to the empty line
+     */
+    private volatile byte[] tail;
+
+    /**
+     * Creates a new KeepAliveResponder
+     *
+     * @param listener receives the datagrams not answered here, when used as a DatagramListener
+     *                 (if null, they are discarded)
+     */
+    public KeepAliveResponder(final DatagramListener listener) {
+        this.listener = listener;
+        this.tag = IdGenerator.getInstance().nextTag().getBytes();
+        format();
+    }
+
+    /**
+     * Formats the headers added to every response; SipStack.serverInfo is read here too
+     */
+    private void format() {
+        final StringBuilder sb = new StringBuilder(160);
+        if (allow != null) {
+            sb.append(SipHeaders.Allow).append(": ").append(allow).append("\r\n");
+        }
+        if (accept != null) {
+            sb.append(SipHeaders.Accept).append(": ").append(accept).append("\r\n");
+        }
+        if (SipStack.serverInfo != null) {
+            sb.append(SipHeaders.Server).append(": ").append(SipStack.serverInfo).append("\r\n");
+        }
+        sb.append(SipHeaders.Content_Length).append(": 0\r\n\r\n");
+        tail = sb.toString().getBytes();
+    }
+
+    public boolean filter(final ListenerDatagramChannel channel, final ByteBuffer buffer, final SocketAddress address) {
+        final int len = buffer.position();
+        if (keepAliveEnabled && isKeepAlive(buffer, len)) {
+            keepAlives.incrementAndGet();
+            if (pongEnabled && len == PING.length && startsWith(buffer, len, PING)) {
+                send(channel, PONG, address);
+            }
+            return true;
+        }
+        if (optionsEnabled && startsWith(buffer, len, OPTIONS)) {
+            final byte[] response = respond(buffer, len);
+            if (response != null) {
+                options.incrementAndGet();
+                send(channel, response, address);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void datagramReceived(final ListenerDatagramChannel channel, final ByteBuffer buffer, final SocketAddress address) {
+        if (!filter(channel, buffer, address) && listener != null) {
+            listener.datagramReceived(channel, buffer, address);
+        }
+    }
+
+    /**
+     * Splices the 200 OK to the OPTIONS request in <i>buffer</i>; the buffer is left untouched
+     *
+     * @return the response, or null if the request is incomplete, malformed or within a dialog
+     */
+    private byte[] respond(final ByteBuffer buffer, final int len) {
+        final byte[] data = buffers.get();
+        if (len > data.length) {
+            return null;
+        }
+        for (int i = 0; i < len; i++) {
+            data[i] = buffer.get(i);
+        }
+        final SipHeaderScanner scanner = scanners.get();
+        final int n = scanner.scan(data, 0, len);
+        if (!scanner.isComplete() || !scanner.isWellFormed()) {
+            return null;
+        }
+        for (int i = 0; i < n; i++) {
+            if (ResponseSplicer.kindOf(data, scanner.getNameBegin(i), scanner.getNameEnd(i), false) == ResponseSplicer.TO) {
+                if (ResponseSplicer.hasTag(data, scanner.getValueBegin(i), scanner.getValueEnd(i))) {
+                    return null;
+                }
+                break;
+            }
+        }
+        return ResponseSplicer.splice(data, scanner, false, STATUS_LINE, tail, tag, null);
+    }
+
+    private static boolean isKeepAlive(final ByteBuffer buffer, final int len) {
+        if (len == 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            final byte b = buffer.get(i);
+            if (b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final ByteBuffer buffer, final int len, final byte[] prefix) {
+        if (len < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void send(final ListenerDatagramChannel channel, final byte[] data, final SocketAddress address) {
+        try {
+            channel.send(ByteBuffer.wrap(data), address);
+        } catch (IOException e) {
+            log.warn("Error answering " + address, e);
+        }
+    }
+
+    /**
+     * Sets whether out-of-dialog OPTIONS requests are answered here
+     *
+     * @param enabled
+     */
+    public void setOptionsEnabled(final boolean enabled) {
+        this.optionsEnabled = enabled;
+    }
+
+    /**
+     * Sets whether CRLF keep-alives are handled here
+     *
+     * @param enabled
+     */
+    public void setKeepAliveEnabled(final boolean enabled) {
+        this.keepAliveEnabled = enabled;
+    }
+
+    /**
+     * Sets whether double-CRLF pings are answered with a CRLF, or just swallowed
+     *
+     * @param enabled
+     */
+    public void setPongEnabled(final boolean enabled) {
+        this.pongEnabled = enabled;
+    }
+
+    /**
+     * Sets the value of the Allow header of the responses (if null, no Allow header is added)
+     *
+     * @param allow
+     */
+    public synchronized void setAllow(final String allow) {
+        this.allow = allow;
+        format();
+    }
+
+    /**
+     * Sets the value of the Accept header of the responses (if null, no Accept header is added)
+     *
+     * @param accept
+     */
+    public synchronized void setAccept(final String accept) {
+        this.accept = accept;
+        format();
+    }
+
+    /**
+     * Sets the tag added to the To header of the responses
+     *
+     * @param tag
+     */
+    public void setLocalTag(final String tag) {
+        this.tag = tag.getBytes();
+    }
+
+    /**
+     * Gets the number of OPTIONS requests answered
+     *
+     * @return
+     */
+    public long getOptionsCount() {
+        return options.get();
+    }
+
+    /**
+     * Gets the number of CRLF keep-alives received
+     *
+     * @return
+     */
+    public long getKeepAliveCount() {
+        return keepAlives.get();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.header.SipHeaders;
+import org.zoolu.sip.message.SipParsingException;
+import org.zoolu.tools.ByteHash;
+
+/**
+ * Class ResponseSplicer creates responses straight from the raw bytes of a received request,
+ * as BaseMessageFactory.createResponse() does from a parsed Message.
+ * <p/> The Via, Record-Route (for 18x and 2xx responses), To, From, Call-ID and CSeq header lines
+ * are copied verbatim, as byte ranges of the request, in the order they appear in it. Only the
+ * status-line, the To tag, Contact, Server and the body are written anew.
+ */
+public class ResponseSplicer {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] TAG = ";tag=".getBytes();
+
+    private ResponseSplicer() {
+    }
+
+    /**
+     * Creates a response to the request of <i>len</i> bytes of <i>data</i> starting from <i>offset</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @param code     response code
+     * @param reason   reason phrase
+     * @param localTag tag added to To, if it has none (if null, no tag is added)
+     * @param contact  Contact NameAddress (if null, no ContactHeader is added)
+     * @return
+     * @throws SipParsingException if the request headers are incomplete or malformed
+     */
+    public static byte[] createResponse(byte[] data, int offset, int len, int code, String reason, String localTag, NameAddress contact) throws SipParsingException {
+        final SipHeaderScanner scanner = new SipHeaderScanner();
+        scanner.scan(data, offset, len);
+        return createResponse(data, scanner, code, reason, localTag, contact, null, null);
+    }
+
+    /**
+     * Creates a response to a request, from the last scan of <i>scanner</i> over <i>data</i>
+     *
+     * @param data
+     * @param scanner     the scanner of the request
+     * @param code        response code
+     * @param reason      reason phrase
+     * @param localTag    tag added to To, if it has none (if null, no tag is added)
+     * @param contact     Contact NameAddress (if null, no ContactHeader is added)
+     * @param contentType body type (if null, "application/sdp")
+     * @param body        body (if null, no body is added)
+     * @return
+     * @throws SipParsingException if the request headers are incomplete or malformed
+     */
+    public static byte[] createResponse(byte[] data, SipHeaderScanner scanner, int code, String reason, String localTag, NameAddress contact, String contentType, String body) throws SipParsingException {
+        if (!scanner.isComplete() || !scanner.isWellFormed()) {
+            throw new SipParsingException("Incomplete or malformed request headers");
+        }
+        final boolean recordRoute = code >= 180 && code < 300;
+
+        final StringBuilder head = new StringBuilder(64);
+        head.append("SIP/2.0 ").append(code).append(' ').append(reason).append("\r\n");
+        final byte[] statusLine = head.toString().getBytes();
+
+        head.setLength(0);
+        if (contact != null) {
+            head.append(SipHeaders.Contact).append(": ").append(contact).append("\r\n");
+        }
+        if (SipStack.serverInfo != null) {
+            head.append(SipHeaders.Server).append(": ").append(SipStack.serverInfo).append("\r\n");
+        }
+        byte[] content = null;
+        if (body != null && body.length() > 0) {
+            content = body.trim().getBytes();
+            head.append(SipHeaders.Content_Type).append(": ").append(contentType != null ? contentType : "application/sdp").append("\r\n");
+        }
+        head.append(SipHeaders.Content_Length).append(": ").append(content != null ? content.length : 0).append("\r\n\r\n");
+        final byte[] tail = head.toString().getBytes();
+        final byte[] tag = (localTag != null) ? localTag.getBytes() : null;
+        return splice(data, scanner, recordRoute, statusLine, tail, tag, content);
+    }
+
+    /**
+     * Splices a response from preformatted parts and the header lines of the last scan of <i>scanner</i>
+     *
+     * @param data
+     * @param scanner     the scanner of the request, complete and well formed
+     * @param recordRoute whether Record-Route is copied
+     * @param statusLine  the status-line, with its CRLF
+     * @param tail        the headers following the copied ones, with the empty line
+     * @param tag         tag added to To, if it has none (if null, no tag is added)
+     * @param content     body (if null, no body is added)
+     * @return
+     */
+    static byte[] splice(byte[] data, SipHeaderScanner scanner, boolean recordRoute, byte[] statusLine, byte[] tail, byte[] tag, byte[] content) {
+        // size
+        final int n = scanner.getHeaderCount();
+        int size = statusLine.length + tail.length + (content != null ? content.length : 0);
+        int toIndex = -1;
+        boolean addTag = false;
+        for (int i = 0; i < n; i++) {
+            final int kind = kindOf(data, scanner.getNameBegin(i), scanner.getNameEnd(i), recordRoute);
+            if (kind > 0) {
+                size += scanner.getValueEnd(i) - scanner.getNameBegin(i) + CRLF.length;
+                if (kind == TO && toIndex < 0) {
+                    toIndex = i;
+                    addTag = tag != null && !hasTag(data, scanner.getValueBegin(i), scanner.getValueEnd(i));
+                    if (addTag) {
+                        size += TAG.length + tag.length;
+                    }
+                }
+            }
+        }
+
+        // copy
+        final byte[] out = new byte[size];
+        int pos = put(out, 0, statusLine, 0, statusLine.length);
+        for (int i = 0; i < n; i++) {
+            if (kindOf(data, scanner.getNameBegin(i), scanner.getNameEnd(i), recordRoute) > 0) {
+                pos = put(out, pos, data, scanner.getNameBegin(i), scanner.getValueEnd(i) - scanner.getNameBegin(i));
+                if (i == toIndex && addTag) {
+                    pos = put(out, pos, TAG, 0, TAG.length);
+                    pos = put(out, pos, tag, 0, tag.length);
+                }
+                pos = put(out, pos, CRLF, 0, CRLF.length);
+            }
+        }
+        pos = put(out, pos, tail, 0, tail.length);
+        if (content != null) {
+            put(out, pos, content, 0, content.length);
+        }
+        return out;
+    }
+
+    static final int TO = 2;
+
+    /**
+     * Gets 0 for headers not copied, TO for the To header, 1 for the others
+     */
+    static int kindOf(byte[] b, int begin, int end, boolean recordRoute) {
+        switch (end - begin) {
+            case 1:
+                switch (b[begin] | 0x20) {
+                    case 'v':
+                    case 'f':
+                    case 'i':
+                        return 1;
+                    case 't':
+                        return TO;
+                }
+                return 0;
+            case 2:
+                return ByteHash.equalsIgnoreCase(b, begin, end, "to") ? TO : 0;
+            case 3:
+                return ByteHash.equalsIgnoreCase(b, begin, end, "via") ? 1 : 0;
+            case 4:
+                return (ByteHash.equalsIgnoreCase(b, begin, end, "from") || ByteHash.equalsIgnoreCase(b, begin, end, "cseq")) ? 1 : 0;
+            case 7:
+                return ByteHash.equalsIgnoreCase(b, begin, end, "call-id") ? 1 : 0;
+            case 12:
+                return (recordRoute && ByteHash.equalsIgnoreCase(b, begin, end, "record-route")) ? 1 : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether a To value has a tag parameter, outside of quotes and angle brackets
+     */
+    static boolean hasTag(byte[] b, int begin, int end) {
+        boolean quoted = false;
+        boolean bracket = false;
+        for (int i = begin; i < end; i++) {
+            final byte c = b[i];
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == '<') {
+                bracket = true;
+            } else if (c == '>') {
+                bracket = false;
+            } else if (c == ';' && !bracket) {
+                int j = i + 1;
+                while (j < end && (b[j] == ' ' || b[j] == '\t')) j++;
+                if (j + 3 <= end && ByteHash.equalsIgnoreCase(b, j, j + 3, "tag")) {
+                    j += 3;
+                    while (j < end && (b[j] == ' ' || b[j] == '\t')) j++;
+                    if (j < end && b[j] == '=') {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int put(byte[] out, int pos, byte[] src, int begin, int len) {
+        System.arraycopy(src, begin, out, pos, len);
+        return pos + len;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.zoolu.tools.ByteHash;
+import org.zoolu.tools.ConcurrentTimelineHashMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class RetransmissionDetector recognizes byte-identical retransmissions of received datagrams
+ * before they are parsed.
+ * <p/> Each datagram is reduced to a 128-bit Fingerprint of its raw bytes and looked up in a
+ * time-bounded ConcurrentTimelineHashMap. For a retransmission the caller can re-send the response
+ * cached with setResponse(), or just drop it, without parsing it into a Message.
+ * <p/> Fingerprints are not cryptographic: a peer can forge collisions, so this should only be used
+ * to save work on datagrams that would be absorbed by the transaction layer anyway.
+ *
+ * @param <R> type of the cached responses
+ */
+public class RetransmissionDetector<R> {
+
+    /**
+     * Default time a datagram is remembered: 64*T1, the lifetime of a non-INVITE transaction
+     */
+    public static final long DEFAULT_TTL = 32000;
+
+    private static final Object NO_RESPONSE = new Object();
+
+    private final ConcurrentTimelineHashMap<Fingerprint, Object> seen;
+    private final AtomicLong retransmissions = new AtomicLong();
+
+    /**
+     * Creates a new RetransmissionDetector
+     *
+     * @param maxEntries maximum number of remembered datagrams
+     * @param ttl        time a datagram is remembered, in milliseconds
+     */
+    public RetransmissionDetector(int maxEntries, long ttl) {
+        seen = new ConcurrentTimelineHashMap<Fingerprint, Object>(maxEntries, ttl, Math.max(1000, ttl / 4));
+    }
+
+    /**
+     * Gets the 128-bit fingerprint of <i>len</i> bytes of <i>data</i> starting from <i>offset</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return
+     */
+    public static Fingerprint fingerprint(byte[] data, int offset, int len) {
+        final long h1 = ByteHash.hash(data, offset, offset + len);
+        long h2 = 0x9E3779B97F4A7C15L ^ len;
+        for (int i = offset; i < offset + len; i++) {
+            h2 = (h2 ^ (data[i] & 0xFF)) * 0xBF58476D1CE4E5B9L;
+            h2 ^= h2 >>> 31;
+        }
+        return new Fingerprint(h1, h2);
+    }
+
+    /**
+     * Records a received datagram
+     *
+     * @param fp the fingerprint of the datagram
+     * @return whether the same datagram has already been received
+     */
+    public boolean isRetransmission(Fingerprint fp) {
+        if (seen.putIfAbsent(fp, NO_RESPONSE) == null) {
+            return false;
+        }
+        retransmissions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records a received datagram
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return whether the same datagram has already been received
+     */
+    public boolean isRetransmission(byte[] data, int offset, int len) {
+        return isRetransmission(fingerprint(data, offset, len));
+    }
+
+    /**
+     * Associates the response to send again when the datagram is retransmitted
+     *
+     * @param fp
+     * @param response
+     */
+    public void setResponse(Fingerprint fp, R response) {
+        seen.put(fp, response);
+    }
+
+    /**
+     * Gets the response associated to a datagram
+     *
+     * @param fp
+     * @return the response, or null if no response has been set
+     */
+    @SuppressWarnings("unchecked")
+    public R getResponse(Fingerprint fp) {
+        final Object r = seen.get(fp);
+        return (r == NO_RESPONSE) ? null : (R) r;
+    }
+
+    /**
+     * Forgets a datagram
+     *
+     * @param fp
+     */
+    public void remove(Fingerprint fp) {
+        seen.remove(fp);
+    }
+
+    /**
+     * Gets the number of retransmissions detected
+     *
+     * @return
+     */
+    public long getRetransmissionCount() {
+        return retransmissions.get();
+    }
+
+    /**
+     * Gets the number of remembered datagrams
+     *
+     * @return
+     */
+    public int size() {
+        return seen.size();
+    }
+
+    /**
+     * 128-bit fingerprint of a datagram
+     */
+    public static final class Fingerprint {
+        private final long h1;
+        private final long h2;
+
+        public Fingerprint(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            final Fingerprint f = (Fingerprint) obj;
+            return h1 == f.h1 && h2 == f.h2;
+        }
+
+        public int hashCode() {
+            return (int) (h1 ^ (h1 >>> 32));
+        }
+
+        public String toString() {
+            return Long.toHexString(h1) + Long.toHexString(h2);
+        }
+    }
+}
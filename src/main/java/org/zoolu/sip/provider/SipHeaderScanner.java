@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class SipHeaderScanner splits a raw SIP message into its start-line and header lines
+ * in a single pass over the bytes.
+ * <p/> The message is read eight bytes at a time as a long and CR, LF and ':' are located
+ * with SWAR (SIMD within a register) bit tricks, so only the delimiters are looked at
+ * one by one. Continuation lines (starting with SP or HT) are folded into the previous header,
+ * as done by SipParser.indexOfEOH().
+ * <p/> For every header the scanner records the trimmed name and value boundaries as absolute
+ * positions of the scanned array. A SipHeaderScanner can be reused, but it is not thread-safe.
+ */
+public final class SipHeaderScanner {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long CR8 = ONES * '\r';
+    private static final long LF8 = ONES * '\n';
+    private static final long COLON8 = ONES * ':';
+
+    /**
+     * Ints stored per header: name begin, name end, value begin, value end
+     */
+    private static final int SLOT = 4;
+
+    private byte[] buf;
+    private ByteBuffer words;
+    private int end;
+    private long high;
+
+    private int[] table = new int[SLOT * 16];
+    private int count;
+    private int startLineEnd;
+    private int headersBegin;
+    private int headersEnd;
+    private int bodyBegin;
+
+    /**
+     * Scans <i>len</i> bytes of <i>data</i> starting from <i>offset</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return the number of headers found
+     */
+    public int scan(byte[] data, int offset, int len) {
+        if (buf != data) {
+            buf = data;
+            words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        end = offset + len;
+        high = 0;
+        count = 0;
+        startLineEnd = -1;
+        headersBegin = end;
+        headersEnd = -1;
+        bodyBegin = end;
+
+        int lineBegin = offset;
+        int colon = -1;
+        boolean wantColon = false;
+        int i = offset;
+        while (true) {
+            final int p = next(i, wantColon);
+            if (p < 0) {
+                // last line without line terminator
+                closeLine(lineBegin, colon, end);
+                return count;
+            }
+            if (buf[p] == ':') {
+                colon = p;
+                wantColon = false;
+                i = p + 1;
+                continue;
+            }
+            // skip the end of the line (i.e. '\r' OR '\n' OR '\r\n')
+            int q = p + 1;
+            if (buf[p] == '\r' && q < end && buf[q] == '\n') {
+                q++;
+            }
+            if (q < end && (buf[q] == ' ' || buf[q] == '\t')) {
+                // folded line
+                i = q;
+                continue;
+            }
+            closeLine(lineBegin, colon, p);
+            if (q >= end) {
+                return count;
+            }
+            if (buf[q] == '\r' || buf[q] == '\n') {
+                // empty line
+                headersEnd = q;
+                bodyBegin = (buf[q] == '\r' && q + 1 < end && buf[q + 1] == '\n') ? q + 2 : q + 1;
+                return count;
+            }
+            lineBegin = q;
+            colon = -1;
+            wantColon = true;
+            i = q;
+        }
+    }
+
+    /**
+     * Position of the next CR or LF (or colon) from <i>i</i>, or -1
+     */
+    private int next(int i, boolean colon) {
+        while (i + 8 <= end) {
+            final long w = words.getLong(i);
+            long m = zeros(w ^ CR8) | zeros(w ^ LF8);
+            if (colon) {
+                m |= zeros(w ^ COLON8);
+            }
+            if (m != 0) {
+                final int k = Long.numberOfTrailingZeros(m) >>> 3;
+                // only the bytes before the delimiter, the others are read again by the next call
+                high |= w & ((1L << (k << 3)) - 1);
+                return i + k;
+            }
+            high |= w;
+            i += 8;
+        }
+        for (; i < end; i++) {
+            final byte b = buf[i];
+            high |= b & 0xFF;
+            if (b == '\r' || b == '\n' || (colon && b == ':')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of every zero byte of <i>y</i>.
+     * Exact (no false positives due to borrows), so that all set bits can be trusted.
+     */
+    private static long zeros(long y) {
+        return ~(((y & LOW7) + LOW7) | y | LOW7);
+    }
+
+    private void closeLine(int lineBegin, int colon, int lineEnd) {
+        if (startLineEnd < 0) {
+            startLineEnd = lineEnd;
+            headersBegin = lineEnd;
+            // the headers begin after the line terminator, if any
+            if (lineEnd < end) {
+                headersBegin = (buf[lineEnd] == '\r' && lineEnd + 1 < end && buf[lineEnd + 1] == '\n') ? lineEnd + 2 : lineEnd + 1;
+            }
+            return;
+        }
+        if (SLOT * (count + 1) > table.length) {
+            final int[] t = new int[table.length * 2];
+            System.arraycopy(table, 0, t, 0, table.length);
+            table = t;
+        }
+        final int k = SLOT * count++;
+        if (colon < 0) {
+            table[k] = lineBegin;
+            table[k + 1] = -1;
+            table[k + 2] = lineEnd;
+            table[k + 3] = lineEnd;
+        } else {
+            table[k] = trimForward(lineBegin, colon);
+            table[k + 1] = trimBackward(table[k], colon);
+            table[k + 2] = trimForward(colon + 1, lineEnd);
+            table[k + 3] = trimBackward(table[k + 2], lineEnd);
+        }
+    }
+
+    private int trimForward(int begin, int end) {
+        while (begin < end && (buf[begin] & 0xFF) <= ' ') {
+            begin++;
+        }
+        return begin;
+    }
+
+    private int trimBackward(int begin, int end) {
+        while (end > begin && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Gets the number of headers found by the last scan
+     *
+     * @return
+     */
+    public int getHeaderCount() {
+        return count;
+    }
+
+    /**
+     * Gets the begin of the name of header <i>i</i>
+     *
+     * @param i
+     * @return
+     */
+    public int getNameBegin(int i) {
+        return table[SLOT * i];
+    }
+
+    /**
+     * Gets the end of the name of header <i>i</i>, or -1 if the line has no colon
+     *
+     * @param i
+     * @return
+     */
+    public int getNameEnd(int i) {
+        return table[SLOT * i + 1];
+    }
+
+    /**
+     * Gets the begin of the value of header <i>i</i>
+     *
+     * @param i
+     * @return
+     */
+    public int getValueBegin(int i) {
+        return table[SLOT * i + 2];
+    }
+
+    /**
+     * Gets the end of the value of header <i>i</i>
+     *
+     * @param i
+     * @return
+     */
+    public int getValueEnd(int i) {
+        return table[SLOT * i + 3];
+    }
+
+    /**
+     * Whether every header line has a colon
+     *
+     * @return
+     */
+    public boolean isWellFormed() {
+        for (int i = 0; i < count; i++) {
+            if (table[SLOT * i + 1] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the start-line and header bytes are 7-bit ASCII, that is byte positions are also char positions.
+     *
+     * @return
+     */
+    public boolean isAscii() {
+        return (high & HIGH) == 0;
+    }
+
+    /**
+     * Gets the end of the (possibly folded) start-line
+     *
+     * @return
+     */
+    public int getStartLineEnd() {
+        return startLineEnd;
+    }
+
+    /**
+     * Gets the begin of the first header line
+     *
+     * @return
+     */
+    public int getHeadersBegin() {
+        return headersBegin;
+    }
+
+    /**
+     * Gets the begin of the empty line ending the headers, or -1 if it has not been found
+     *
+     * @return
+     */
+    public int getHeadersEnd() {
+        return headersEnd;
+    }
+
+    /**
+     * Whether the empty line ending the headers has been found
+     *
+     * @return
+     */
+    public boolean isComplete() {
+        return headersEnd >= 0;
+    }
+
+    /**
+     * Gets the begin of the message body; that is the end of the scanned bytes if the headers are not complete
+     *
+     * @return
+     */
+    public int getBodyBegin() {
+        return bodyBegin;
+    }
+}
@@ -34,6 +34,7 @@ import org.zoolu.sip.header.Header;
 import org.zoolu.sip.header.RequestLine;
 import org.zoolu.sip.header.StatusLine;
 import org.zoolu.sip.message.Message;
+import org.zoolu.tools.CharClass;
 import org.zoolu.tools.DateFormat;
 import org.zoolu.tools.Parser;
 
@@ -98,11 +99,21 @@ public class SipParser extends Parser {
      */
     public static char[] MARK = {'-', '_', '.', '!', '~', '*', '\'', '|'};
 
+    /**
+     * MARK chars as lookup table
+     */
+    public static final CharClass MARK_CHARS = new CharClass(MARK);
+
     /**
      * SEPARATOR char[], composed by: ' ','\t','\r','\n','(',')','<','>',',',';','\\','"','/','[',']','?','=','{','}'
      */
     public static char[] SEPARATOR = {' ', '\t', '\r', '\n', '(', ')', '<', '>', ',', ';', '\\', '"', '/', '[', ']', '?', '=', '{', '}'};
 
+    /**
+     * SEPARATOR chars as lookup table
+     */
+    public static final CharClass SEPARATOR_CHARS = new CharClass(SEPARATOR);
+
     /**
      * Checks whether a char is any MARK
      *
@@ -110,7 +121,7 @@ public class SipParser extends Parser {
      * @return
      */
     public static boolean isMark(char c) {  //return (c=='-' || c=='_' || c=='.' || c=='!' || c=='~' || c=='*' || c=='\'' || c=='|');
-        return isAnyOf(MARK, c);
+        return MARK_CHARS.contains(c);
     }
 
     /**
@@ -130,7 +141,7 @@ public class SipParser extends Parser {
      * @return
      */
     public static boolean isSeparator(char c) {  //return (isSpace(c) || isCRLF(c) || c=='(' || c==')' || c=='<' || c=='>' || c==',' || c==';' || c=='\\' || c=='"' || c=='/' || c=='[' || c==']' || c=='?' || c=='=' || c=='{' || c=='}');
-        return isAnyOf(SEPARATOR, c);
+        return SEPARATOR_CHARS.contains(c);
     }
 
     /**
@@ -139,11 +150,8 @@ public class SipParser extends Parser {
      * @return
      */
     public int indexOfSeparator() {
-        int begin = index;
-        while (begin < str.length() && !isSeparator(str.charAt(begin))) {
-            begin++;
-        }
-        return begin;
+        int begin = SEPARATOR_CHARS.indexIn(str, index, str.length());
+        return (begin < 0) ? str.length() : begin;
     }
 
     /**
@@ -152,15 +160,16 @@ public class SipParser extends Parser {
      * @return
      */
     public int indexOfEOH() {
-        SipParser par = new SipParser(str, index);
+        final int len = str.length();
+        int i = index;
         while (true) {
-            par.goTo(CRLF); // find the first CR or LF
-            if (!par.hasMore()) {
-                return str.length(); // if no CR/LF found return the end of string
+            final int end = CharClass.CRLF.indexIn(str, i, len); // find the first CR or LF
+            if (end < 0) {
+                return len; // if no CR/LF found return the end of string
             }
-            int end = par.getPos();
-            par.goToNextLine(); // skip the CR/LF chars
-            if (!par.hasMore() || !isWSP(par.nextChar())) {
+            // skip the CR/LF chars
+            i = (str.startsWith("\r\n", end)) ? end + 2 : end + 1;
+            if (i >= len || !isWSP(str.charAt(i))) {
                 return end;
             }
         }
@@ -215,17 +224,27 @@ public class SipParser extends Parser {
      * @return
      */
     public SipParser goToEndOfLastHeader() {
-        String[] delimiters = {"\r\n\r\n", "\n\n"}; // double newline
-        goTo(delimiters);
-        if (!hasMore()) // no double newline found
-        {
-            if (str.startsWith("\r\n", str.length() - 2)) {
-                index = str.length() - 2;
-            } else if (str.charAt(str.length() - 1) == '\n') {
-                index = str.length() - 1;
-            } else {
-                index = str.length();
+        // double newline, i.e. the first of "\r\n\r\n" or "\n\n", in a single pass
+        final int len = str.length();
+        int lf = str.indexOf('\n', index);
+        while (lf >= 0 && lf + 1 < len) {
+            if (lf > index && str.charAt(lf - 1) == '\r' && str.startsWith("\r\n", lf + 1)) {
+                index = lf - 1;
+                return this;
             }
+            if (str.charAt(lf + 1) == '\n') {
+                index = lf;
+                return this;
+            }
+            lf = str.indexOf('\n', lf + 1);
+        }
+        // no double newline found
+        if (str.startsWith("\r\n", len - 2)) {
+            index = len - 2;
+        } else if (str.charAt(len - 1) == '\n') {
+            index = len - 1;
+        } else {
+            index = len;
         }
         return this;
     }
@@ -329,6 +348,8 @@ public class SipParser extends Parser {
 
     public static char[] uri_separators = {' ', '>', '\n', '\r'};
 
+    public static final CharClass URI_SEPARATOR_CHARS = new CharClass(uri_separators);
+
     /**
      * Returns the first URL.
      * If no URL is found, it returns <b>null</b>
@@ -341,7 +362,7 @@ public class SipParser extends Parser {
             return null;
         }
         int begin = getPos();
-        int end = indexOf(uri_separators);
+        int end = indexOf(URI_SEPARATOR_CHARS);
         if (end < 0) {
             end = str.length();
         }
@@ -475,6 +496,8 @@ public class SipParser extends Parser {
 
     public static char[] param_separators = {' ', '=', ';', ',', '\n', '\r'};
 
+    public static final CharClass PARAM_SEPARATOR_CHARS = new CharClass(param_separators);
+
     /**
      * Gets the value of specified parameter.
      *
@@ -484,11 +507,11 @@ public class SipParser extends Parser {
      */
     public String getParameter(String name) {
         while (hasMore()) {
-            if (getWord(param_separators).equals(name)) {
+            if (getWord(PARAM_SEPARATOR_CHARS).equals(name)) {
                 skipWSP();
                 if (nextChar() == '=') {
                     skipChar();
-                    return getWordSkippingQuoted(param_separators);
+                    return getWordSkippingQuoted(PARAM_SEPARATOR_CHARS);
                 } else {
                     return null;
                 }
@@ -511,7 +534,7 @@ public class SipParser extends Parser {
         String name;
         List params = new ArrayList();
         while (hasMore()) {
-            name = getWord(param_separators);
+            name = getWord(PARAM_SEPARATOR_CHARS);
             if (name.length() > 0) {
                 params.add(name);
             }
@@ -531,7 +554,7 @@ public class SipParser extends Parser {
      */
     public boolean hasParameter(String name) {
         while (hasMore()) {
-            if (getWord(param_separators).equals(name)) {
+            if (getWord(PARAM_SEPARATOR_CHARS).equals(name)) {
                 return true;
             }
             goToSkippingQuoted(';');
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.apache.log4j.Logger;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.SelDatagramChannel;
+import org.zoolu.sip.message.Message;
+import org.zoolu.tools.NamingThreadFactory;
+import org.zoolu.tools.RingBuffer;
+import org.zoolu.tools.WaitStrategy;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class SipPipeline is a DatagramListener that processes the received datagrams in three stages,
+ * each handing off to the next through a preallocated RingBuffer:
+ * <ul>
+ * <li> receive: the datagram is copied into a free slot, on the calling (e.g. selector) thread;
+ * if no slot is free the datagram is dropped, as the network would do </li>
+ * <li> parse: a dedicated thread turns the raw bytes into a Message </li>
+ * <li> handle: a dedicated thread passes the Message to the MessageHandler </li>
+ * </ul>
+ * Each stage works on batches of slots in order, so there is no per-packet task nor lock.
+ */
+public class SipPipeline implements DatagramListener {
+
+    private static final Logger log = Logger.getLogger(SipPipeline.class);
+
+    /**
+     * Handles the parsed Messages, on the handler thread
+     */
+    public interface MessageHandler {
+        public void onMessage(ListenerDatagramChannel channel, Message msg, SocketAddress source);
+    }
+
+    private static final class Datagram {
+        final byte[] data = new byte[SelDatagramChannel.RECEIVE_BUFFER_SIZE];
+        int length;
+        SocketAddress source;
+        ListenerDatagramChannel channel;
+    }
+
+    private static final class Parsed {
+        Message msg;
+        SocketAddress source;
+        ListenerDatagramChannel channel;
+    }
+
+    private final RingBuffer<Datagram> received;
+    private final RingBuffer<Parsed> parsed;
+    private final MessageHandler handler;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean running = false;
+    private Thread parser;
+    private Thread dispatcher;
+
+    private final RingBuffer.Handler<Datagram> parseStage = new RingBuffer.Handler<Datagram>() {
+        public void onSlot(Datagram d, long sequence, boolean endOfBatch) {
+            final Message msg;
+            try {
+                msg = new Message(d.data, 0, d.length);
+                msg.setSendTo(d.source);
+            } catch (Throwable t) {
+                errors.incrementAndGet();
+                log.warn("Error parsing datagram from " + d.source, t);
+                return;
+            } finally {
+                d.source = null;
+            }
+            long seq;
+            int attempts = 0;
+            while ((seq = parsed.tryNext()) < 0) {
+                if (!running) {
+                    return;
+                }
+                waitStrategy.idle(++attempts);
+            }
+            final Parsed p = parsed.get(seq);
+            p.msg = msg;
+            p.source = msg.getSendTo();
+            p.channel = d.channel;
+            d.channel = null;
+            parsed.publish(seq);
+        }
+    };
+
+    private final RingBuffer.Handler<Parsed> handleStage = new RingBuffer.Handler<Parsed>() {
+        public void onSlot(Parsed p, long sequence, boolean endOfBatch) {
+            try {
+                handler.onMessage(p.channel, p.msg, p.source);
+            } catch (Throwable t) {
+                errors.incrementAndGet();
+                log.error("Error handling message from " + p.source, t);
+            } finally {
+                p.msg = null;
+                p.source = null;
+                p.channel = null;
+            }
+        }
+    };
+
+    /**
+     * Creates a new SipPipeline
+     *
+     * @param handler      handles the parsed Messages
+     * @param size         number of slots of each ring
+     * @param waitStrategy how the stage threads wait for work
+     */
+    public SipPipeline(final MessageHandler handler, final int size, final WaitStrategy waitStrategy) {
+        this.handler = handler;
+        this.waitStrategy = waitStrategy;
+        this.received = new RingBuffer<Datagram>(size, new RingBuffer.Factory<Datagram>() {
+            public Datagram newInstance() {
+                return new Datagram();
+            }
+        }, waitStrategy);
+        this.parsed = new RingBuffer<Parsed>(size, new RingBuffer.Factory<Parsed>() {
+            public Parsed newInstance() {
+                return new Parsed();
+            }
+        }, waitStrategy);
+    }
+
+    /**
+     * Starts the parse and handle threads
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        parser = stage("SipPipeline.Parse", received, parseStage);
+        dispatcher = stage("SipPipeline.Handle", parsed, handleStage);
+    }
+
+    private <E> Thread stage(final String name, final RingBuffer<E> ring, final RingBuffer.Handler<E> h) {
+        final Thread t = new NamingThreadFactory(name).newThread(new Runnable() {
+            public void run() {
+                while (running && !Thread.currentThread().isInterrupted()) {
+                    ring.consume(h);
+                }
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Stops the parse and handle threads; pending datagrams are discarded
+     */
+    public synchronized void stop() {
+        running = false;
+        if (parser != null) {
+            parser.interrupt();
+            dispatcher.interrupt();
+            parser = dispatcher = null;
+        }
+    }
+
+    public void datagramReceived(final ListenerDatagramChannel channel, final ByteBuffer buffer, final SocketAddress address) {
+        final long seq = received.tryNext();
+        if (seq < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        final Datagram d = received.get(seq);
+        final int len = Math.min(buffer.position(), d.data.length);
+        final int limit = buffer.limit();
+        buffer.flip();
+        buffer.get(d.data, 0, len);
+        buffer.limit(limit);
+        d.length = len;
+        d.source = address;
+        d.channel = channel;
+        received.publish(seq);
+    }
+
+    /**
+     * Gets the number of datagrams dropped because the pipeline was full
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of datagrams that could not be parsed or handled
+     *
+     * @return
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the number of datagrams and messages waiting in the pipeline
+     *
+     * @return
+     */
+    public int getPending() {
+        return received.getPending() + parsed.getPending();
+    }
+}
@@ -27,7 +27,7 @@
 
 package org.zoolu.sip.provider;
 
-import org.zoolu.tools.Random;
+import org.zoolu.tools.IdGenerator;
 
 public class SipProviderInformation implements SipProviderInfoInterface {
 
@@ -73,6 +73,11 @@ public class SipProviderInformation implements SipProviderInfoInterface {
      */
     boolean force_rport = false;
 
+    /**
+     * Generator of tags, branches and Call-IDs.
+     */
+    IdGenerator idGenerator = IdGenerator.getInstance();
+
     // ************************** Public methods *************************
 
     /**
@@ -148,7 +153,7 @@ public class SipProviderInformation implements SipProviderInfoInterface {
      * compared byte-by-byte.
      */
     public String pickCallId() {
-        return Random.nextNumString(12) + "_" + getViaAddress();
+        return idGenerator.nextCallId(getViaAddress());
     }
 
     public int pickInitialCSeq() {
@@ -165,7 +170,28 @@ public class SipProviderInformation implements SipProviderInfoInterface {
      * invite itself to a session.
      */
     public String pickTag() {
-        return "z9hG4bK" + Random.nextNumString(8);
+        return idGenerator.nextTag();
+    }
+
+    /**
+     * Picks a new Via branch, starting with the RFC 3261 magic cookie.
+     */
+    public String pickBranch() {
+        return idGenerator.nextBranch();
+    }
+
+    /**
+     * Gets the generator of tags, branches and Call-IDs.
+     */
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets the generator of tags, branches and Call-IDs (e.g. one with the node id of this cluster member).
+     */
+    public void setIdGenerator(IdGenerator generator) {
+        idGenerator = generator;
     }
 
     public void setIp(String ip) {
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.SipParsingException;
+
+/**
+ * Class SipStreamParser is a push-style parser of SIP messages received over a stream
+ * transport (e.g. TCP or TLS).
+ * <p/> Data is fed in arbitrary chunks through push(); as soon as the headers and
+ * Content-Length bytes of body of a message are available, the Message is passed to the
+ * SipStreamListener, and only the still unparsed tail is kept buffered.
+ * CRLF keep-alives between messages are skipped.
+ * <p/> As required by RFC 3261 for stream transports, a missing Content-Length means no body.
+ * A SipStreamParser holds the state of a single stream, and it is not thread-safe.
+ */
+public class SipStreamParser {
+
+    /**
+     * Default maximum size of a message
+     */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 65536;
+
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes();
+
+    private final SipStreamListener listener;
+    private final int maxMessageSize;
+    private final SipHeaderScanner scanner = new SipHeaderScanner();
+
+    private byte[] buf;
+    /**
+     * Begin of the current message
+     */
+    private int start = 0;
+    /**
+     * End of buffered data
+     */
+    private int limit = 0;
+    /**
+     * Where the search of the empty line is resumed
+     */
+    private int searchFrom = 0;
+    /**
+     * End of the current message, or -1 if its headers are not complete yet
+     */
+    private int messageEnd = -1;
+    /**
+     * Whether the scanner still refers to the current message position
+     */
+    private boolean scanned = false;
+
+    /**
+     * Creates a new SipStreamParser
+     *
+     * @param listener
+     */
+    public SipStreamParser(SipStreamListener listener) {
+        this(listener, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * Creates a new SipStreamParser
+     *
+     * @param listener
+     * @param maxMessageSize messages bigger than this are rejected
+     */
+    public SipStreamParser(SipStreamListener listener, int maxMessageSize) {
+        this.listener = listener;
+        this.maxMessageSize = maxMessageSize;
+        this.buf = new byte[Math.min(4096, maxMessageSize)];
+    }
+
+    /**
+     * Pushes <i>len</i> bytes of <i>data</i> starting from <i>offset</i>.
+     * Every Message completed by these bytes is passed to the listener before returning.
+     * <p/> After a SipParsingException the stream cannot be resynchronized, the parser is reset.
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return the number of Messages completed
+     * @throws SipParsingException if a message is too big or has an invalid Content-Length
+     */
+    public int push(byte[] data, int offset, int len) throws SipParsingException {
+        append(data, offset, len);
+        int n = 0;
+        try {
+            while (parseNext()) {
+                n++;
+            }
+        } catch (SipParsingException e) {
+            reset();
+            throw e;
+        }
+        if (start == limit) {
+            start = limit = searchFrom = 0;
+        }
+        return n;
+    }
+
+    /**
+     * Gets the number of buffered bytes not yet returned as Message
+     *
+     * @return
+     */
+    public int getPendingLength() {
+        return limit - start;
+    }
+
+    /**
+     * Discards any buffered data
+     */
+    public void reset() {
+        start = limit = searchFrom = 0;
+        messageEnd = -1;
+        scanned = false;
+    }
+
+    private void append(byte[] data, int offset, int len) {
+        if (limit + len > buf.length) {
+            final int pending = limit - start;
+            if (pending + len > buf.length) {
+                int size = buf.length;
+                while (size < pending + len) {
+                    size *= 2;
+                }
+                final byte[] b = new byte[size];
+                System.arraycopy(buf, start, b, 0, pending);
+                buf = b;
+            } else {
+                System.arraycopy(buf, start, buf, 0, pending);
+            }
+            searchFrom -= start;
+            if (messageEnd >= 0) {
+                messageEnd -= start;
+            }
+            start = 0;
+            limit = pending;
+            scanned = false;
+        }
+        System.arraycopy(data, offset, buf, limit, len);
+        limit += len;
+    }
+
+    /**
+     * Parses the next Message, if complete
+     */
+    private boolean parseNext() throws SipParsingException {
+        if (messageEnd < 0) {
+            // skip keep-alives
+            while (start < limit && (buf[start] == '\r' || buf[start] == '\n')) {
+                start++;
+            }
+            if (searchFrom < start) {
+                searchFrom = start;
+            }
+            if (!findEmptyLine()) {
+                if (limit - start > maxMessageSize) {
+                    throw new SipParsingException("SIP message headers exceed " + maxMessageSize + " bytes");
+                }
+                return false;
+            }
+            scanner.scan(buf, start, limit - start);
+            if (!scanner.isComplete()) {
+                // e.g. the empty line was part of a folded header
+                return false;
+            }
+            scanned = true;
+            final int bodyBegin = scanner.getBodyBegin();
+            messageEnd = bodyBegin + getContentLength();
+            if (messageEnd - start > maxMessageSize) {
+                throw new SipParsingException("SIP message exceeds " + maxMessageSize + " bytes");
+            }
+        }
+        if (limit < messageEnd) {
+            return false;
+        }
+        if (!scanned) {
+            scanner.scan(buf, start, messageEnd - start);
+        }
+        final Message msg = new Message(buf, start, messageEnd - start, scanner);
+        start = searchFrom = messageEnd;
+        messageEnd = -1;
+        scanned = false;
+        listener.onReceivedMessage(this, msg);
+        return true;
+    }
+
+    /**
+     * Searches the end of the headers (a line terminator followed by an empty line) in the data not searched yet
+     */
+    private boolean findEmptyLine() {
+        for (int i = searchFrom; i < limit; i++) {
+            if (buf[i] == '\n') {
+                if (i + 1 >= limit || (buf[i + 1] == '\r' && i + 2 >= limit)) {
+                    // resume from this LF when more data is available
+                    searchFrom = i;
+                    return false;
+                }
+                if (buf[i + 1] == '\n' || (buf[i + 1] == '\r' && buf[i + 2] == '\n')) {
+                    searchFrom = i + 1;
+                    return true;
+                }
+            }
+        }
+        searchFrom = limit;
+        return false;
+    }
+
+    /**
+     * Gets the Content-Length of the scanned headers, or 0 if not present
+     */
+    private int getContentLength() throws SipParsingException {
+        for (int i = scanner.getHeaderCount() - 1; i >= 0; i--) {
+            final int b = scanner.getNameBegin(i);
+            final int e = scanner.getNameEnd(i);
+            if ((e - b == 1 && (buf[b] | 0x20) == 'l') || (e - b == CONTENT_LENGTH.length && equalsIgnoreCase(b))) {
+                final int vb = scanner.getValueBegin(i);
+                final int ve = scanner.getValueEnd(i);
+                if (vb == ve || ve - vb > 9) {
+                    throw new SipParsingException("Invalid Content-Length");
+                }
+                int len = 0;
+                for (int j = vb; j < ve; j++) {
+                    final int d = buf[j] - '0';
+                    if (d < 0 || d > 9) {
+                        throw new SipParsingException("Invalid Content-Length");
+                    }
+                    len = len * 10 + d;
+                }
+                return len;
+            }
+        }
+        return 0;
+    }
+
+    private boolean equalsIgnoreCase(int b) {
+        for (int k = 0; k < CONTENT_LENGTH.length; k++) {
+            if ((buf[b + k] | 0x20) != CONTENT_LENGTH[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
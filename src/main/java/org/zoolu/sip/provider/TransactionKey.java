@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.sip.provider;
+
+import org.zoolu.sip.message.SipMethods;
+import org.zoolu.tools.ByteHash;
+
+/**
+ * Class TransactionKey identifies the SIP transaction of a message, as defined by RFC 3261
+ * section 17.2.3: top Via branch, top Via sent-by and CSeq method (ACK is matched as INVITE).
+ * <p/> The key is extracted straight from the received bytes with a single SipHeaderScanner pass,
+ * without building any Message or Header; branch and sent-by are kept as 64-bit hashes.
+ */
+public final class TransactionKey {
+
+    private static final String MAGIC_COOKIE = "z9hG4bK";
+
+    private final long branch;
+    private final long sentBy;
+    private final int method;
+    private final boolean rfc3261;
+
+    /**
+     * Creates a new TransactionKey
+     *
+     * @param branch  hash of the branch
+     * @param sentBy  hash of the sent-by
+     * @param method  method id, as returned by getMethodId()
+     * @param rfc3261 whether the branch starts with the RFC 3261 magic cookie
+     */
+    public TransactionKey(long branch, long sentBy, int method, boolean rfc3261) {
+        this.branch = branch;
+        this.sentBy = sentBy;
+        this.method = method;
+        this.rfc3261 = rfc3261;
+    }
+
+    /**
+     * Extracts the TransactionKey of the message of <i>len</i> bytes of <i>data</i> starting from <i>offset</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @return the key, or null if the message has no Via with branch or no CSeq
+     */
+    public static TransactionKey extract(byte[] data, int offset, int len) {
+        return extract(data, offset, len, new SipHeaderScanner());
+    }
+
+    /**
+     * Extracts the TransactionKey of the message, using (and overwriting) <i>scanner</i>
+     *
+     * @param data
+     * @param offset
+     * @param len
+     * @param scanner
+     * @return the key, or null if the message has no Via with branch or no CSeq
+     */
+    public static TransactionKey extract(byte[] data, int offset, int len, SipHeaderScanner scanner) {
+        final int n = scanner.scan(data, offset, len);
+        int via = -1;
+        int cseq = -1;
+        for (int i = 0; i < n && (via < 0 || cseq < 0); i++) {
+            final int nb = scanner.getNameBegin(i);
+            final int ne = scanner.getNameEnd(i);
+            if (via < 0 && (ByteHash.equalsIgnoreCase(data, nb, ne, "via") || ByteHash.equalsIgnoreCase(data, nb, ne, "v"))) {
+                via = i;
+            } else if (cseq < 0 && ByteHash.equalsIgnoreCase(data, nb, ne, "cseq")) {
+                cseq = i;
+            }
+        }
+        if (via < 0 || cseq < 0) {
+            return null;
+        }
+
+        // CSeq: 1*DIGIT LWS Method
+        int i = scanner.getValueBegin(cseq);
+        final int cseqEnd = scanner.getValueEnd(cseq);
+        while (i < cseqEnd && data[i] >= '0' && data[i] <= '9') {
+            i++;
+        }
+        i = skipLws(data, i, cseqEnd);
+        int e = i;
+        while (e < cseqEnd && !isLws(data[e])) {
+            e++;
+        }
+        if (e == i) {
+            return null;
+        }
+        final int method = getMethodId(data, i, e);
+
+        // Via: SIP/2.0/UDP sent-by *( SEMI via-params ) *( COMMA via-parm )
+        final int viaEnd = scanner.getValueEnd(via);
+        i = scanner.getValueBegin(via);
+        while (i < viaEnd && !isLws(data[i])) {
+            i++; // sent-protocol
+        }
+        i = skipLws(data, i, viaEnd);
+        e = i;
+        while (e < viaEnd && data[e] != ';' && data[e] != ',' && !isLws(data[e])) {
+            e++;
+        }
+        final long sentBy = ByteHash.hashIgnoreCase(data, i, e);
+        i = e;
+        while (i < viaEnd && data[i] != ',') {
+            if (data[i++] != ';') {
+                continue;
+            }
+            final int nameBegin = skipLws(data, i, viaEnd);
+            int nameEnd = nameBegin;
+            while (nameEnd < viaEnd && data[nameEnd] != '=' && data[nameEnd] != ';' && data[nameEnd] != ',' && !isLws(data[nameEnd])) {
+                nameEnd++;
+            }
+            i = nameEnd;
+            if (!ByteHash.equalsIgnoreCase(data, nameBegin, nameEnd, "branch")) {
+                continue;
+            }
+            i = skipLws(data, i, viaEnd);
+            if (i >= viaEnd || data[i] != '=') {
+                return null;
+            }
+            i = skipLws(data, i + 1, viaEnd);
+            e = i;
+            while (e < viaEnd && data[e] != ';' && data[e] != ',' && !isLws(data[e])) {
+                e++;
+            }
+            if (e == i) {
+                return null;
+            }
+            final boolean rfc3261 = e - i > MAGIC_COOKIE.length() && startsWith(data, i, MAGIC_COOKIE);
+            return new TransactionKey(ByteHash.hash(data, i, e), sentBy, method, rfc3261);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the id of the method in bytes from <i>begin</i> to <i>end</i> of <i>b</i>:
+     * the position in SipMethods.methods plus one, with ACK mapped to INVITE,
+     * or a negative hash for extension methods. Method names are case-sensitive (RFC 3261, 7.1)
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @return
+     */
+    public static int getMethodId(byte[] b, int begin, int end) {
+        final String[] methods = SipMethods.methods;
+        for (int k = 0; k < methods.length; k++) {
+            if (ByteHash.equals(b, begin, end, methods[k])) {
+                return SipMethods.ACK.equals(methods[k]) ? 1 : k + 1;
+            }
+        }
+        return (int) ByteHash.hash(b, begin, end) | 0x80000000;
+    }
+
+    private static boolean startsWith(byte[] b, int begin, String prefix) {
+        for (int k = 0; k < prefix.length(); k++) {
+            if (b[begin + k] != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLws(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static int skipLws(byte[] b, int i, int end) {
+        while (i < end && isLws(b[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Gets the hash of the top Via branch
+     *
+     * @return
+     */
+    public long getBranchHash() {
+        return branch;
+    }
+
+    /**
+     * Gets the hash of the top Via sent-by
+     *
+     * @return
+     */
+    public long getSentByHash() {
+        return sentBy;
+    }
+
+    /**
+     * Gets the method id
+     *
+     * @return
+     */
+    public int getMethodId() {
+        return method;
+    }
+
+    /**
+     * Whether the branch starts with the RFC 3261 magic cookie "z9hG4bK".
+     * If not, the key cannot be relied on to match transactions.
+     *
+     * @return
+     */
+    public boolean isRfc3261() {
+        return rfc3261;
+    }
+
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TransactionKey)) {
+            return false;
+        }
+        final TransactionKey k = (TransactionKey) obj;
+        return branch == k.branch && sentBy == k.sentBy && method == k.method;
+    }
+
+    public int hashCode() {
+        final long h = branch ^ (sentBy * 31) ^ method;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public String toString() {
+        return Long.toHexString(branch) + "/" + Long.toHexString(sentBy) + "/" + method;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class ByteHash computes 64-bit FNV-1a hashes of byte ranges, without allocating.
+ */
+public final class ByteHash {
+
+    /**
+     * FNV-1a 64-bit offset basis
+     */
+    public static final long BASIS = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private ByteHash() {
+    }
+
+    /**
+     * Hashes bytes from <i>begin</i> to <i>end</i> of <i>b</i>
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @return
+     */
+    public static long hash(byte[] b, int begin, int end) {
+        return update(BASIS, b, begin, end);
+    }
+
+    /**
+     * Continues hash <i>h</i> with bytes from <i>begin</i> to <i>end</i> of <i>b</i>
+     *
+     * @param h
+     * @param b
+     * @param begin
+     * @param end
+     * @return
+     */
+    public static long update(long h, byte[] b, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            h ^= b[i] & 0xFF;
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Hashes bytes from <i>begin</i> to <i>end</i> of <i>b</i> (absolute positions; position and limit are not changed)
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @return
+     */
+    public static long hash(ByteBuffer b, int begin, int end) {
+        long h = BASIS;
+        for (int i = begin; i < end; i++) {
+            h ^= b.get(i) & 0xFF;
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Hashes bytes from <i>begin</i> to <i>end</i> of <i>b</i>, ignoring the case of ASCII letters
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @return
+     */
+    public static long hashIgnoreCase(byte[] b, int begin, int end) {
+        long h = BASIS;
+        for (int i = begin; i < end; i++) {
+            int c = b[i] & 0xFF;
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            h ^= c;
+            h *= PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Whether bytes from <i>begin</i> to <i>end</i> of <i>b</i> are equal to the ASCII string <i>s</i>
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @param s
+     * @return
+     */
+    public static boolean equals(byte[] b, int begin, int end, String s) {
+        if (end - begin != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if ((b[begin + i] & 0xFF) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether bytes from <i>begin</i> to <i>end</i> of <i>b</i> are equal to the lower case ASCII string <i>lower</i>, ignoring the case
+     *
+     * @param b
+     * @param begin
+     * @param end
+     * @param lower
+     * @return
+     */
+    public static boolean equalsIgnoreCase(byte[] b, int begin, int end, String lower) {
+        if (end - begin != lower.length()) {
+            return false;
+        }
+        for (int i = 0; i < lower.length(); i++) {
+            int c = b[begin + i] & 0xFF;
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != lower.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+
+/**
+ * Class CharClass is an immutable set of chars used by the Parser for scanning.
+ * <BR> The ASCII range is held in a precomputed 128-entry bitmask (two longs), so
+ * testing a char costs a shift and a mask instead of a loop over a char array.
+ * Chars above 127 (rarely used as separators) are kept in a plain array.
+ */
+public final class CharClass {
+
+    /**
+     * Characters space (SP) and tab (HT).
+     */
+    public static final CharClass WSP = new CharClass(" \t");
+    /**
+     * Characters CR and LF.
+     */
+    public static final CharClass CRLF = new CharClass("\r\n");
+    /**
+     * Characters white-space, tab, CR, and LF.
+     */
+    public static final CharClass WSPCRLF = new CharClass(" \t\r\n");
+
+    /**
+     * Bits 0-63 of the ASCII table
+     */
+    private final long low;
+    /**
+     * Bits 64-127 of the ASCII table
+     */
+    private final long high;
+    /**
+     * Non-ASCII members, or null
+     */
+    private final char[] others;
+
+    /**
+     * Creates a CharClass containing all chars of <i>chars</i>
+     *
+     * @param chars
+     */
+    public CharClass(char[] chars) {
+        long l = 0, h = 0;
+        int n = 0;
+        for (char c : chars) {
+            if (c < 64) {
+                l |= 1L << c;
+            } else if (c < 128) {
+                h |= 1L << c;
+            } else {
+                n++;
+            }
+        }
+        low = l;
+        high = h;
+        if (n == 0) {
+            others = null;
+        } else {
+            others = new char[n];
+            n = 0;
+            for (char c : chars) {
+                if (c >= 128) {
+                    others[n++] = c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a CharClass containing all chars of String <i>chars</i>
+     *
+     * @param chars
+     */
+    public CharClass(String chars) {
+        this(chars.toCharArray());
+    }
+
+    private CharClass(long low, long high, char[] others) {
+        this.low = low;
+        this.high = high;
+        this.others = others;
+    }
+
+    /**
+     * Gets a CharClass for the chars of array <i>cc</i>; it builds a new table, so it is meant
+     * for constants, not for per-call use
+     *
+     * @param cc
+     * @return
+     */
+    public static CharClass of(char[] cc) {
+        return new CharClass(cc);
+    }
+
+    /**
+     * Whether char <i>c</i> belongs to this class
+     *
+     * @param c
+     * @return
+     */
+    public boolean contains(char c) {
+        if (c < 64) {
+            return (low & (1L << c)) != 0;
+        }
+        if (c < 128) {
+            return (high & (1L << c)) != 0;
+        }
+        return others != null && Parser.isAnyOf(others, c);
+    }
+
+    /**
+     * Gets a new CharClass with the chars of both classes
+     *
+     * @param cc
+     * @return
+     */
+    public CharClass union(CharClass cc) {
+        char[] o = others;
+        if (cc.others != null) {
+            if (o == null) {
+                o = cc.others;
+            } else {
+                o = new char[others.length + cc.others.length];
+                System.arraycopy(others, 0, o, 0, others.length);
+                System.arraycopy(cc.others, 0, o, others.length, cc.others.length);
+            }
+        }
+        return new CharClass(low | cc.low, high | cc.high, o);
+    }
+
+    /**
+     * Index of the first char of <i>s</i> in this class, starting from <i>begin</i> and before <i>end</i>
+     *
+     * @param s
+     * @param begin
+     * @param end
+     * @return the index, or -1 if no char is found
+     */
+    public int indexIn(String s, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            if (contains(s.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the first char of <i>s</i> NOT in this class, starting from <i>begin</i> and before <i>end</i>
+     *
+     * @param s
+     * @param begin
+     * @param end
+     * @return the index, or <i>end</i> if all chars are in this class
+     */
+    public int skipIn(String s, int begin, int end) {
+        int i = begin;
+        while (i < end && contains(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
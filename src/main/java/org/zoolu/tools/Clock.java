@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Class Clock is a coarse shared clock: a daemon thread refreshes a volatile millisecond timestamp
+ * every <i>tick</i> milliseconds, so reading the time is a plain volatile read.
+ * <p/> The RFC 1123 representation of the current second, as used in the SIP Date header, is formatted
+ * once per second and cached.
+ * <p/> Times read from Clock may be late by up to one tick; use System.currentTimeMillis() where a
+ * better precision is needed.
+ */
+public final class Clock {
+
+    private static final Logger log = Logger.getLogger(Clock.class);
+
+    /**
+     * Default tick, in milliseconds
+     */
+    public static final long DEFAULT_TICK = 10;
+
+    private static volatile long now = System.currentTimeMillis();
+    private static volatile long tick = DEFAULT_TICK;
+    private static volatile Second second = new Second(now);
+
+    static {
+        final Thread t = new Thread(new Runnable() {
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(tick);
+                    } catch (InterruptedException e) {
+                        log.warn("Clock interrupted", e);
+                    }
+                    update();
+                }
+            }
+        }, "Clock");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private Clock() {
+    }
+
+    private static void update() {
+        final long t = System.currentTimeMillis();
+        // the second first, so that whoever reads the new time finds its date formatted
+        if (t / 1000 != second.second) {
+            second = new Second(t);
+        }
+        now = t;
+    }
+
+    /**
+     * Gets the current time, in milliseconds, as of the last tick
+     *
+     * @return
+     */
+    public static long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Gets the RFC 1123 representation (e.g. "Sun, 06 Nov 1994 08:49:37 GMT") of the current time
+     *
+     * @return
+     */
+    public static String getDate() {
+        return second.date;
+    }
+
+    /**
+     * Gets the RFC 1123 representation of time <i>millis</i>; times within the current second are not formatted again
+     *
+     * @param millis
+     * @return
+     */
+    public static String formatDate(long millis) {
+        final Second s = second;
+        return (millis / 1000 == s.second) ? s.date : DateFormat.formatRfc1123(millis);
+    }
+
+    /**
+     * Gets the tick, in milliseconds
+     *
+     * @return
+     */
+    public static long getTick() {
+        return tick;
+    }
+
+    /**
+     * Sets the tick, in milliseconds. It takes effect from the next tick.
+     *
+     * @param millis
+     */
+    public static void setTick(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + millis);
+        }
+        tick = millis;
+    }
+
+    /**
+     * Immutable second with its RFC 1123 representation
+     */
+    private static final class Second {
+        final long second;
+        final String date;
+
+        Second(long millis) {
+            second = millis / 1000;
+            date = DateFormat.formatRfc1123(second * 1000);
+        }
+    }
+}
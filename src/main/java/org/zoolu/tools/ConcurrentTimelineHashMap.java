@@ -182,20 +182,20 @@ public class ConcurrentTimelineHashMap <K, V>  extends java.util.AbstractMap<K,V
     public V put(K key, V value) {
         if  (getPurgeCounterLimit() > 0 &&
                 counter.incrementAndGet() > getPurgeCounterLimit() &&
-                counter.getAndAdd(0) > getPurgeCounterLimit()) {
+                counter.getAndSet(0) > getPurgeCounterLimit()) {
             cleanUpExpiredWithNoResult();
         }
-        expireMap.put(key, System.currentTimeMillis());
+        expireMap.put(key, Clock.currentTimeMillis());
         return map.put(key, value);
     }
 
     public V putIfAbsent(K key, V value) {
         if (getPurgeCounterLimit() > 0 &&
                 counter.incrementAndGet() > getPurgeCounterLimit() &&
-                counter.getAndAdd(0) > getPurgeCounterLimit()) {
+                counter.getAndSet(0) > getPurgeCounterLimit()) {
             cleanUpExpiredWithNoResult();
         }
-        expireMap.putIfAbsent(key, System.currentTimeMillis());
+        expireMap.putIfAbsent(key, Clock.currentTimeMillis());
         return map.putIfAbsent(key, value);
     }
 
@@ -214,9 +214,11 @@ public class ConcurrentTimelineHashMap <K, V>  extends java.util.AbstractMap<K,V
     public List<V> cleanUpExpired(final long timeout) {
 
         List<V> l = new ArrayList<V>();
+        // timestamps are taken from the coarse Clock, which may lag: never let entries look younger
+        final long now = System.currentTimeMillis();
 
         for (Entry<K, Long> entry: expireMap.entrySet()) {
-            if (System.currentTimeMillis() - entry.getValue() > timeout) {
+            if (now - entry.getValue() > timeout) {
                 l.add(map.get(entry.getKey()));
                 expireMap.remove(entry.getKey());
                 map.remove(entry.getKey());
@@ -30,10 +30,12 @@ package org.zoolu.tools;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
 
 /**
  * Class DateFormat replaces the format method of java.text.DateFormat.
+ * <p/> Calendars are kept per thread, instead of being created at each call.
  */
 public class DateFormat {
 
@@ -48,6 +50,40 @@ public class DateFormat {
      */
     private static final String[] WEEKDAYS = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
 
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private static final ThreadLocal<Calendar> localCalendar = new ThreadLocal<Calendar>() {
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private static final ThreadLocal<Calendar> gmtCalendar = new ThreadLocal<Calendar>() {
+        protected Calendar initialValue() {
+            return Calendar.getInstance(GMT);
+        }
+    };
+
+    private static Calendar localCalendar(Date date) {
+        final Calendar cal = localCalendar.get();
+        cal.setTime(date);
+        return cal;
+    }
+
+    private static StringBuilder append2(StringBuilder sb, int n) {
+        if (n < 10) {
+            sb.append('0');
+        }
+        return sb.append(n);
+    }
+
+    private static StringBuilder append3(StringBuilder sb, int n) {
+        if (n < 100) {
+            sb.append('0');
+        }
+        return append2(sb, n);
+    }
+
 
     /**
      * Gets a "HH:mm:ss.SSS EEE dd MMM yyyy" representation of a Date
@@ -56,35 +92,16 @@ public class DateFormat {
      * @return
      */
     public static String formatHHMMSS(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        String weekday = WEEKDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1];
-        String month = MONTHS[cal.get(Calendar.MONTH)];
-        String year = Integer.toString(cal.get(Calendar.YEAR));
-        String day = Integer.toString(cal.get(Calendar.DAY_OF_MONTH));
-        String hour = Integer.toString(cal.get(Calendar.HOUR_OF_DAY));
-        String min = Integer.toString(cal.get(Calendar.MINUTE));
-        String sec = Integer.toString(cal.get(Calendar.SECOND));
-        String millisec = Integer.toString(cal.get(Calendar.MILLISECOND));
-        if (day.length() == 1) {
-            day = "0" + day;
-        }
-        if (hour.length() == 1) {
-            hour = "0" + hour;
-        }
-        if (min.length() == 1) {
-            min = "0" + min;
-        }
-        if (sec.length() == 1) {
-            sec = "0" + sec;
-        }
-        if (millisec.length() == 1) {
-            millisec = "00" + millisec;
-        } else if (millisec.length() == 2) {
-            millisec = "0" + millisec;
-        }
-
-        return hour + ":" + min + ":" + sec + "." + millisec + " " + weekday + " " + day + " " + month + " " + year;
+        Calendar cal = localCalendar(date);
+        final StringBuilder sb = new StringBuilder(32);
+        append2(sb, cal.get(Calendar.HOUR_OF_DAY)).append(':');
+        append2(sb, cal.get(Calendar.MINUTE)).append(':');
+        append2(sb, cal.get(Calendar.SECOND)).append('.');
+        append3(sb, cal.get(Calendar.MILLISECOND)).append(' ');
+        sb.append(WEEKDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1]).append(' ');
+        append2(sb, cal.get(Calendar.DAY_OF_MONTH)).append(' ');
+        sb.append(MONTHS[cal.get(Calendar.MONTH)]).append(' ');
+        return sb.append(cal.get(Calendar.YEAR)).toString();
     }
 
 
@@ -95,76 +112,49 @@ public class DateFormat {
      * @return
      */
     public static String formatYYYYMMDD(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        //String weekday=WEEKDAYS[cal.get(Calendar.DAY_OF_WEEK)-1];
-        //String month=MONTHS[cal.get(Calendar.MONTH)];
-        String year = Integer.toString(cal.get(Calendar.YEAR));
-        String day = Integer.toString(cal.get(Calendar.DAY_OF_MONTH));
-        String hour = Integer.toString(cal.get(Calendar.HOUR_OF_DAY));
-        String min = Integer.toString(cal.get(Calendar.MINUTE));
-        String sec = Integer.toString(cal.get(Calendar.SECOND));
-        String millisec = Integer.toString(cal.get(Calendar.MILLISECOND));
-        if (day.length() == 1) {
-            day = "0" + day;
-        }
-        if (hour.length() == 1) {
-            hour = "0" + hour;
-        }
-        if (min.length() == 1) {
-            min = "0" + min;
-        }
-        if (sec.length() == 1) {
-            sec = "0" + sec;
-        }
-        if (millisec.length() == 1) {
-            millisec = "00" + millisec;
-        } else if (millisec.length() == 2) {
-            millisec = "0" + millisec;
-        }
-
-        String month = Integer.toString(cal.get(Calendar.MONTH) + 1);
-        if (month.length() == 1) {
-            month = "0" + month;
-        }
-
-        return year + "-" + month + "-" + day + " " + hour + ":" + min + ":" + sec + "." + millisec;
+        Calendar cal = localCalendar(date);
+        final StringBuilder sb = new StringBuilder(24);
+        sb.append(cal.get(Calendar.YEAR)).append('-');
+        append2(sb, cal.get(Calendar.MONTH) + 1).append('-');
+        append2(sb, cal.get(Calendar.DAY_OF_MONTH)).append(' ');
+        append2(sb, cal.get(Calendar.HOUR_OF_DAY)).append(':');
+        append2(sb, cal.get(Calendar.MINUTE)).append(':');
+        append2(sb, cal.get(Calendar.SECOND)).append('.');
+        return append3(sb, cal.get(Calendar.MILLISECOND)).toString();
     }
 
 
     /**
-     * Gets a "EEE, dd MMM yyyy hh:mm:ss 'GMT'" representation of a Date
+     * Gets a "EEE, dd MMM yyyy hh:mm:ss 'GMT'" representation of a Date.
+     * Dates within the current second are taken from the Clock cache.
      *
      * @param date
      * @return
      */
     public static String formatEEEddMMM(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        String weekday = WEEKDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1];
-        String month = MONTHS[cal.get(Calendar.MONTH)];
-        String year = Integer.toString(cal.get(Calendar.YEAR));
-        String day = Integer.toString(cal.get(Calendar.DAY_OF_MONTH));
-        String hour = Integer.toString(cal.get(Calendar.HOUR_OF_DAY));
-        String min = Integer.toString(cal.get(Calendar.MINUTE));
-        String sec = Integer.toString(cal.get(Calendar.SECOND));
-        if (day.length() == 1) {
-            day = "0" + day;
-        }
-        if (hour.length() == 1) {
-            hour = "0" + hour;
-        }
-        if (min.length() == 1) {
-            min = "0" + min;
-        }
-        if (sec.length() == 1) {
-            sec = "0" + sec;
-        }
+        return Clock.formatDate(date.getTime());
+    }
 
-        return weekday + ", " + day + " " + month + " " + year + " " + hour + ":" + min + ":" + sec + " GMT";
+    /**
+     * Gets the "EEE, dd MMM yyyy hh:mm:ss 'GMT'" (RFC 1123) representation of time <i>millis</i>
+     */
+    static String formatRfc1123(long millis) {
+        final Calendar cal = gmtCalendar.get();
+        cal.setTimeInMillis(millis);
+        final StringBuilder sb = new StringBuilder(29);
+        sb.append(WEEKDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1]).append(", ");
+        append2(sb, cal.get(Calendar.DAY_OF_MONTH)).append(' ');
+        sb.append(MONTHS[cal.get(Calendar.MONTH)]).append(' ');
+        sb.append(cal.get(Calendar.YEAR)).append(' ');
+        append2(sb, cal.get(Calendar.HOUR_OF_DAY)).append(':');
+        append2(sb, cal.get(Calendar.MINUTE)).append(':');
+        append2(sb, cal.get(Calendar.SECOND));
+        return sb.append(" GMT").toString();
     }
 
 
+    private static final CharClass delim = new CharClass(" ,:");
+
     /**
      * Parses a String for a "EEE, dd MMM yyyy hh:mm:ss 'GMT'" formatted Date
      *
@@ -174,10 +164,14 @@ public class DateFormat {
      */
     public static Date parseEEEddMMM(String str, int index) {
         //return df.format(date);
-        Calendar cal = Calendar.getInstance();
-        char[] delim = {' ', ',', ':'};
+        Calendar cal = gmtCalendar.get();
+        cal.clear();
         Parser par = new Parser(str, index);
         //String EEE=par.getString(); // day of the week
+        par.skipWSP();
+        if (par.hasMore() && Character.isLetter(par.nextChar())) {
+            par.goTo(',').skipChar(); // day of the week
+        }
         int day = par.getInt(); // day of the month
         String MMM = par.getString(); // month
         int month = 0;
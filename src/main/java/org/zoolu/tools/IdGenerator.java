@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class IdGenerator picks the random identifiers of SIP messages: tags, Via branches and Call-IDs.
+ * <p/> Each thread has its own xorshift64* generator, seeded once from SecureRandom, so threads
+ * never contend on a shared seed. Every random long is cut into 6-bit groups encoded through a
+ * 64-entry table of token chars, that is 10 chars per long, written straight into the buffer of the
+ * identifier.
+ * <p/> An optional node id, separated by '.', prefixes tags, branches and Call-IDs so that
+ * identifiers picked by different nodes of a cluster never collide.
+ */
+public final class IdGenerator {
+
+    /**
+     * RFC 3261 magic cookie of Via branches
+     */
+    public static final String MAGIC_COOKIE = "z9hG4bK";
+
+    /**
+     * Random chars of tags (60 bits)
+     */
+    public static final int TAG_LENGTH = 10;
+    /**
+     * Random chars of branches (72 bits)
+     */
+    public static final int BRANCH_LENGTH = 12;
+    /**
+     * Random chars of Call-IDs (120 bits)
+     */
+    public static final int CALL_ID_LENGTH = 20;
+
+    private static final char[] TABLE = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
+    private static final char NODE_SEPARATOR = '.';
+
+    private static final long SEED = new SecureRandom().nextLong();
+    private static final AtomicLong threads = new AtomicLong();
+
+    private static final ThreadLocal<long[]> state = new ThreadLocal<long[]>() {
+        protected long[] initialValue() {
+            // splitmix64 of a per-thread value, never 0
+            long z = SEED + threads.incrementAndGet() * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            return new long[]{z != 0 ? z : 1};
+        }
+    };
+
+    private static final IdGenerator instance = new IdGenerator(null);
+
+    private final char[] prefix;
+
+    /**
+     * Creates an IdGenerator
+     *
+     * @param nodeId the node id, or null
+     */
+    public IdGenerator(String nodeId) {
+        if (nodeId == null || nodeId.length() == 0) {
+            prefix = new char[0];
+        } else {
+            for (int i = 0; i < nodeId.length(); i++) {
+                final char c = nodeId.charAt(i);
+                if (!Character.isLetterOrDigit(c) || c > 127) {
+                    throw new IllegalArgumentException("Node id must be alphanumeric: " + nodeId);
+                }
+            }
+            prefix = (nodeId + NODE_SEPARATOR).toCharArray();
+        }
+    }
+
+    /**
+     * Gets the IdGenerator with no node id
+     *
+     * @return
+     */
+    public static IdGenerator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns a random long from the generator of the current thread
+     *
+     * @return
+     */
+    public static long nextLong() {
+        final long[] s = state.get();
+        long x = s[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        s[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Writes <i>len</i> random token chars into <i>buf</i> starting from <i>offset</i>
+     *
+     * @param buf
+     * @param offset
+     * @param len
+     * @return the end of the written chars
+     */
+    public static int fill(char[] buf, int offset, int len) {
+        final int end = offset + len;
+        int i = offset;
+        while (i < end) {
+            long r = nextLong();
+            for (int k = Math.min(10, end - i); k > 0; k--) {
+                buf[i++] = TABLE[(int) r & 0x3F];
+                r >>>= 6;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Writes <i>len</i> random token chars, as ASCII bytes, into <i>buf</i> starting from <i>offset</i>
+     *
+     * @param buf
+     * @param offset
+     * @param len
+     * @return the end of the written bytes
+     */
+    public static int fill(byte[] buf, int offset, int len) {
+        final int end = offset + len;
+        int i = offset;
+        while (i < end) {
+            long r = nextLong();
+            for (int k = Math.min(10, end - i); k > 0; k--) {
+                buf[i++] = (byte) TABLE[(int) r & 0x3F];
+                r >>>= 6;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Gets the node id, or null
+     *
+     * @return
+     */
+    public String getNodeId() {
+        return (prefix.length > 0) ? new String(prefix, 0, prefix.length - 1) : null;
+    }
+
+    /**
+     * Picks <i>before</i> + node id + <i>len</i> random chars + <i>after</i>
+     */
+    private String pick(String before, int len, String after) {
+        final int b = before.length();
+        final char[] buf = new char[b + prefix.length + len + after.length()];
+        before.getChars(0, b, buf, 0);
+        System.arraycopy(prefix, 0, buf, b, prefix.length);
+        final int end = fill(buf, b + prefix.length, len);
+        after.getChars(0, after.length(), buf, end);
+        return new String(buf);
+    }
+
+    /**
+     * Picks a new identifier of <i>len</i> random chars, after the node id
+     *
+     * @param len
+     * @return
+     */
+    public String nextId(int len) {
+        return pick("", len, "");
+    }
+
+    /**
+     * Picks a new tag
+     *
+     * @return
+     */
+    public String nextTag() {
+        return pick("", TAG_LENGTH, "");
+    }
+
+    /**
+     * Picks a new Via branch, starting with the RFC 3261 magic cookie
+     *
+     * @return
+     */
+    public String nextBranch() {
+        return pick(MAGIC_COOKIE, BRANCH_LENGTH, "");
+    }
+
+    /**
+     * Picks a new Call-ID, in the form "localid_host"
+     *
+     * @param host the host, or null
+     * @return
+     */
+    public String nextCallId(String host) {
+        return pick("", CALL_ID_LENGTH, (host != null) ? "_" + host : "");
+    }
+}
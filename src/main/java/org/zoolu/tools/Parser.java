@@ -235,6 +235,20 @@ public class Parser {
         return this;
     }
 
+    /**
+     * Goes to the next occurence of any char of class <i>cc</i>
+     *
+     * @param cc
+     * @return
+     */
+    public Parser goTo(CharClass cc) {
+        index = indexOf(cc);
+        if (index < 0) {
+            index = str.length();
+        }
+        return this;
+    }
+
     /**
      * Goes to the next occurence of <i>String s</i>
      *
@@ -297,8 +311,9 @@ public class Parser {
      * @return
      */
     public Parser goToNextLine() {
-        while (index < str.length() && !isCRLF(str.charAt(index))) {
-            index++;
+        index = CharClass.CRLF.indexIn(str, index, str.length());
+        if (index < 0) {
+            index = str.length();
         }
         // skip the end of the line (i.e. '\r' OR '\n' OR '\r\n')
         if (index < str.length()) {
@@ -432,7 +447,7 @@ public class Parser {
      * @return
      */
     public static boolean isCRLF(char c) {
-        return isAnyOf(CRLF, c);
+        return CharClass.CRLF.contains(c);
     }
 
     /**
@@ -462,7 +477,7 @@ public class Parser {
      * @return
      */
     public static boolean isWSP(char c) {
-        return isAnyOf(WSP, c);
+        return CharClass.WSP.contains(c);
     }
 
     /**
@@ -472,7 +487,7 @@ public class Parser {
      * @return
      */
     public static boolean isWSPCRLF(char c) {
-        return isAnyOf(WSPCRLF, c);
+        return CharClass.WSPCRLF.contains(c);
     }
 
 
@@ -526,17 +541,22 @@ public class Parser {
      * @return
      */
     public int indexOf(char[] cc) {
-        boolean found = false;
-        int begin = index;
-        while (begin < str.length() && !found) {
-            for (char aCc : cc)
-                if (str.charAt(begin) == aCc) {
-                    found = true;
-                    break;
-                }
-            begin++;
+        for (int i = index; i < str.length(); i++) {
+            if (isAnyOf(cc, str.charAt(i))) {
+                return i;
+            }
         }
-        return (found) ? (begin - 1) : -1;
+        return -1;
+    }
+
+    /**
+     * Gets the index of the first occurence of any char of class <i>cc</i> starting form the current position; return -1 if no occurence is found
+     *
+     * @param cc
+     * @return
+     */
+    public int indexOf(CharClass cc) {
+        return cc.indexIn(str, index, str.length());
     }
 
     /**
@@ -724,9 +744,7 @@ public class Parser {
      * @return
      */
     public Parser skipCRLF() {
-        while (index < str.length() && isCRLF(str.charAt(index))) {
-            index++;
-        }
+        index = CharClass.CRLF.skipIn(str, index, str.length());
         return this;
     }
 
@@ -736,9 +754,7 @@ public class Parser {
      * @return
      */
     public Parser skipWSPCRLF() {
-        while (index < str.length() && isWSPCRLF(str.charAt(index))) {
-            index++;
-        }
+        index = CharClass.WSPCRLF.skipIn(str, index, str.length());
         return this;
     }
 
@@ -749,12 +765,23 @@ public class Parser {
      * @return
      */
     public Parser skipChars(char[] cc) {
-        while (index < str.length() && isAnyOf(cc, nextChar())) {
+        while (index < str.length() && isAnyOf(cc, str.charAt(index))) {
             index++;
         }
         return this;
     }
 
+    /**
+     * Skips any chars of class <i>cc</i>
+     *
+     * @param cc
+     * @return
+     */
+    public Parser skipChars(CharClass cc) {
+        index = cc.skipIn(str, index, str.length());
+        return this;
+    }
+
     /**
      * Skips a continuous string of char and go to the next "blank" char
      *
@@ -820,6 +847,23 @@ public class Parser {
         return str.substring(begin, end);
     }
 
+    /**
+     * Gets a string of chars separated by any of chars of class <i>separators</i>
+     *
+     * @param separators
+     * @return
+     */
+    public String getWord(CharClass separators) {
+        final int len = str.length();
+        int begin = separators.skipIn(str, index, len);
+        int end = separators.indexIn(str, begin, len);
+        if (end < 0) {
+            end = len;
+        }
+        index = end;
+        return str.substring(begin, end);
+    }
+
     /**
      * Gets an integer and point to the next char
      *
@@ -845,9 +889,9 @@ public class Parser {
      * @return
      */
     public String getLine() {
-        int end = index;
-        while (end < str.length() && !isCRLF(str.charAt(end))) {
-            end++;
+        int end = CharClass.CRLF.indexIn(str, index, str.length());
+        if (end < 0) {
+            end = str.length();
         }
         String line = str.substring(index, end);
         index = end;
@@ -878,6 +922,20 @@ public class Parser {
         return list;
     }
 
+    /**
+     * Gets all string of chars separated by any char belonging to class <i>separators</i>
+     *
+     * @param separators
+     * @return
+     */
+    public List getWordVector(CharClass separators) {
+        List list = new ArrayList();
+        do {
+            list.add(getWord(separators));
+        } while (hasMore());
+        return list;
+    }
+
     /**
      * Gets all string of chars separated by any char belonging to <i>separators</i>
      *
@@ -891,6 +949,19 @@ public class Parser {
         return array;
     }
 
+    /**
+     * Gets all string of chars separated by any char belonging to class <i>separators</i>
+     *
+     * @param separators
+     * @return
+     */
+    public String[] getWordArray(CharClass separators) {
+        List list = getWordVector(separators);
+        String[] array = new String[list.size()];
+        for (int i = 0; i < list.size(); i++) array[i] = (String) list.get(i);
+        return array;
+    }
+
     /**
      * Gets all strings
      *
@@ -942,6 +1013,32 @@ public class Parser {
         return str.substring(begin, end);
     }
 
+    /**
+     * Gets a string of chars separated by any of chars of class <i>separators</i>
+     * , skipping any separator inside possible quoted texts.
+     *
+     * @param separators
+     * @return
+     */
+    public String getWordSkippingQuoted(CharClass separators) {
+        final int len = str.length();
+        int begin = separators.skipIn(str, index, len);
+        boolean inside_quoted_string = false;
+        int end = begin;
+        while (end < len) {
+            final char c = str.charAt(end);
+            if (!inside_quoted_string && separators.contains(c)) {
+                break;
+            }
+            if (c == '"') {
+                inside_quoted_string = !inside_quoted_string;
+            }
+            end++;
+        }
+        index = end;
+        return str.substring(begin, end);
+    }
+
     /**
      * Gets the first quatable string, that is a normal string, or text in quotes.
      * <br>In the latter case, quotes are dropped.
@@ -31,6 +31,7 @@ package org.zoolu.tools;
 /**
  * Class Random collects some static methods for generating
  * random numbers and other stuff.
+ * <p/> Each thread uses its own generator, so threads do not contend on a shared seed.
  */
 public class Random {
     /**
@@ -39,16 +40,20 @@ public class Random {
     static final long seed = System.currentTimeMillis();
     //static final long seed=0;
 
-    static java.util.Random rand = new java.util.Random(seed);
+    private static final ThreadLocal<java.util.Random> rand = new ThreadLocal<java.util.Random>() {
+        protected java.util.Random initialValue() {
+            return new java.util.Random(seed ^ IdGenerator.nextLong());
+        }
+    };
     //static java.util.Random rand=new java.util.Random();
 
     /**
-     * Sets the seed of this random number generator using a single long seed
+     * Sets the seed of the random number generator of the current thread using a single long seed
      *
      * @param seed
      */
     public static void setSeed(long seed) {
-        rand.setSeed(seed);
+        rand.get().setSeed(seed);
     }
 
     /**
@@ -57,7 +62,7 @@ public class Random {
      * @return
      */
     public static int nextInt() {
-        return rand.nextInt();
+        return rand.get().nextInt();
     }
 
     /**
@@ -67,7 +72,7 @@ public class Random {
      * @return
      */
     public static int nextInt(int n) {
-        return Math.abs(rand.nextInt()) % n;
+        return Math.abs(rand.get().nextInt()) % n;
     }
 
     /**
@@ -76,7 +81,7 @@ public class Random {
      * @return
      */
     public static long nextLong() {
-        return rand.nextLong();
+        return rand.get().nextLong();
     }
 
     /**
@@ -85,7 +90,7 @@ public class Random {
      * @return
      */
     public static boolean nextBoolean() {
-        return rand.nextInt(2) == 1;
+        return rand.get().nextInt(2) == 1;
     }
 
     /**
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class RingBuffer is a bounded ring of preallocated slots used to hand off work between
+ * threads without locks and without per-item allocation.
+ * <p/> Any number of producers claim a sequence with next() or tryNext(), fill the slot returned
+ * by get() and publish() it. A single consumer takes the published slots in sequence order
+ * with consume(). The slot objects are created once by the Factory and reused.
+ *
+ * @param <E> slot type
+ */
+public final class RingBuffer<E> {
+
+    /**
+     * Creates the slots of a RingBuffer
+     */
+    public interface Factory<E> {
+        public E newInstance();
+    }
+
+    /**
+     * Consumes the slots of a RingBuffer
+     */
+    public interface Handler<E> {
+        /**
+         * Handles a slot; the slot may be reused as soon as this method returns.
+         *
+         * @param slot
+         * @param sequence
+         * @param endOfBatch whether no other slot is available right now
+         */
+        public void onSlot(E slot, long sequence, boolean endOfBatch);
+    }
+
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    /**
+     * Last claimed sequence
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Sequence published in each slot
+     */
+    private final AtomicLongArray published;
+    /**
+     * Last consumed sequence
+     */
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    /**
+     * Creates a new RingBuffer
+     *
+     * @param size         number of slots, rounded up to a power of two
+     * @param factory      creates the slots
+     * @param waitStrategy how to wait when full (producers) or empty (consumer)
+     */
+    public RingBuffer(int size, Factory<E> factory, WaitStrategy waitStrategy) {
+        int n = 1;
+        while (n < size) {
+            n <<= 1;
+        }
+        slots = new Object[n];
+        published = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) {
+            slots[i] = factory.newInstance();
+            published.set(i, -1);
+        }
+        mask = n - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Claims the next sequence, waiting while the ring is full
+     *
+     * @return
+     */
+    public long next() {
+        int attempts = 0;
+        long seq;
+        while ((seq = tryNext()) < 0) {
+            waitStrategy.idle(++attempts);
+        }
+        return seq;
+    }
+
+    /**
+     * Claims the next sequence
+     *
+     * @return the sequence, or -1 if the ring is full
+     */
+    public long tryNext() {
+        while (true) {
+            final long current = cursor.get();
+            final long next = current + 1;
+            if (next - slots.length > consumed.get()) {
+                return -1;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gets the slot of sequence <i>seq</i>
+     *
+     * @param seq
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long seq) {
+        return (E) slots[(int) seq & mask];
+    }
+
+    /**
+     * Publishes the slot of sequence <i>seq</i> to the consumer
+     *
+     * @param seq
+     */
+    public void publish(long seq) {
+        published.set((int) seq & mask, seq);
+    }
+
+    /**
+     * Handles all published slots, in order, waiting for at least one.
+     * Must be called by a single consumer thread.
+     *
+     * @param handler
+     * @return the number of slots handled
+     */
+    public int consume(Handler<E> handler) {
+        long next = consumed.get() + 1;
+        int attempts = 0;
+        while (published.get((int) next & mask) != next) {
+            waitStrategy.idle(++attempts);
+            if (Thread.currentThread().isInterrupted()) {
+                return 0;
+            }
+        }
+        int n = 0;
+        do {
+            final boolean last = published.get((int) (next + 1) & mask) != next + 1;
+            try {
+                handler.onSlot(get(next), next, last);
+            } finally {
+                consumed.lazySet(next);
+            }
+            n++;
+            next++;
+        } while (published.get((int) next & mask) == next);
+        return n;
+    }
+
+    /**
+     * Gets the number of slots
+     *
+     * @return
+     */
+    public int getSize() {
+        return slots.length;
+    }
+
+    /**
+     * Gets the number of claimed slots not consumed yet
+     *
+     * @return
+     */
+    public int getPending() {
+        return (int) (cursor.get() - consumed.get());
+    }
+}
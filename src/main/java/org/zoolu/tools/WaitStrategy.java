@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ *
+ *  This file is part of MjSip (http://www.mjsip.org)
+ *
+ *  MjSip is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ *  MjSip is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with MjSip; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *  Author(s):
+ *  Luca Veltri (luca.veltri@unipr.it)
+ *
+ *  Modified:
+ *  Benhur Langoni (bhlangonijr@gmail.com)
+ *  Thiago Camargo (barata7@gmail.com)
+ */
+
+package org.zoolu.tools;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a RingBuffer producer or consumer waits when it cannot go ahead.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Spins on the CPU: lowest latency, burns a core per waiting thread
+     */
+    public static final WaitStrategy BUSY_SPIN = new WaitStrategy() {
+        public void idle(int attempts) {
+        }
+    };
+
+    /**
+     * Spins for a while, then yields the CPU to other threads
+     */
+    public static final WaitStrategy YIELD = new WaitStrategy() {
+        public void idle(int attempts) {
+            if (attempts > 100) {
+                Thread.yield();
+            }
+        }
+    };
+
+    /**
+     * Spins and yields for a while, then parks for growing periods (up to 1ms): cheapest on CPU
+     */
+    public static final WaitStrategy PARK = new WaitStrategy() {
+        public void idle(int attempts) {
+            if (attempts > 200) {
+                LockSupport.parkNanos(Math.min(1000000L, 1000L << Math.min(10, (attempts - 200) >> 4)));
+            } else if (attempts > 100) {
+                Thread.yield();
+            }
+        }
+    };
+
+    /**
+     * Waits once
+     *
+     * @param attempts number of consecutive failed attempts so far
+     */
+    public void idle(int attempts);
+}
@@ -0,0 +1,79 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.zoolu.sip.provider.CallDispatcher;
+import org.zoolu.sip.provider.CallIdHash;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CallDispatcherTest extends TestCase {
+
+    private static ByteBuffer received(String msg) {
+        final ByteBuffer b = ByteBuffer.allocate(1450);
+        b.put(msg.getBytes());
+        return b;
+    }
+
+    public void testCallIdHash() {
+
+        final String a = "INVITE sip:bob@biloxi.com SIP/2.0\r\nVia: SIP/2.0/UDP h;branch=z9hG4bK1\r\nCall-ID:  a84b4c76e66710@pc33 \r\n\r\n";
+        final String b = "SIP/2.0 200 OK\r\nv: SIP/2.0/UDP h;branch=z9hG4bK1\r\ni:a84b4c76e66710@pc33\r\n\r\n";
+        final String c = "BYE sip:bob@biloxi.com SIP/2.0\r\ncall-id : other@pc33\r\n\r\n";
+
+        final ByteBuffer ba = received(a);
+        final long h = CallIdHash.hash(ba, 0, ba.position());
+        assertTrue(h != CallIdHash.NONE);
+        assertEquals(a.length(), ba.position());
+        final ByteBuffer bb = received(b);
+        assertEquals(h, CallIdHash.hash(bb, 0, bb.position()));
+        final ByteBuffer bc = received(c);
+        assertFalse(h == CallIdHash.hash(bc, 0, bc.position()));
+        assertEquals(CallIdHash.NONE, CallIdHash.hash("\r\n\r\n".getBytes(), 0, 4));
+    }
+
+    public void testSharding() throws InterruptedException {
+
+        final int calls = 20, packets = 50;
+        final CountDownLatch done = new CountDownLatch(calls * packets);
+        final Map<String, Thread> threads = new ConcurrentHashMap<String, Thread>();
+        final Map<String, Integer> last = new ConcurrentHashMap<String, Integer>();
+        final StringBuffer errors = new StringBuffer();
+
+        final CallDispatcher dispatcher = new CallDispatcher(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                final String s = new String(buffer.array(), 0, buffer.position());
+                final String callId = s.substring(s.indexOf("Call-ID: ") + 9, s.indexOf("\r\nCSeq"));
+                final int cseq = Integer.parseInt(s.substring(s.indexOf("CSeq: ") + 6, s.indexOf(" INFO")));
+                final Thread t = threads.get(callId);
+                if (t == null) {
+                    threads.put(callId, Thread.currentThread());
+                } else if (t != Thread.currentThread()) {
+                    errors.append("call moved ");
+                }
+                final Integer l = last.get(callId);
+                if (l != null && l != cseq - 1) {
+                    errors.append("out of order ");
+                }
+                last.put(callId, cseq);
+                done.countDown();
+            }
+        }, 4);
+
+        for (int p = 1; p <= packets; p++) {
+            for (int c = 0; c < calls; c++) {
+                dispatcher.datagramReceived(null, received("INFO sip:a@b SIP/2.0\r\nCall-ID: call" + c + "\r\nCSeq: " + p + " INFO\r\n\r\n"), null);
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+        assertEquals("", errors.toString());
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.authentication.ChallengeCache;
+import org.zoolu.sip.authentication.DigestEngine;
+import org.zoolu.sip.authentication.NonceCountTable;
+import org.zoolu.sip.authentication.NonceService;
+import org.zoolu.sip.header.ProxyAuthenticateHeader;
+import org.zoolu.sip.message.BaseMessageFactory;
+import org.zoolu.sip.message.Message;
+
+public class ChallengeCacheTest extends TestCase {
+
+    final String register = "REGISTER sip:registrar.atlanta.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bKnashds7\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "To: Bob <sip:bob@atlanta.com>\r\n" +
+            "From: Bob <sip:bob@atlanta.com>;tag=456248\r\n" +
+            "Call-ID: 843817637684230@998sdasdh09\r\n" +
+            "CSeq: 1826 REGISTER\r\n" +
+            "Content-Length: 0\r\n" +
+            "\r\n";
+
+    final NonceService nonces = new NonceService("key".getBytes(), 60000, new NonceCountTable(64, 60000));
+    final DigestEngine engine = new DigestEngine(new DigestEngine.PasswordResolver() {
+        public String getPassword(String username, String realm) {
+            return "bob".equals(username) ? "zanzibar" : null;
+        }
+    });
+
+    private Message challenge(Message req, boolean stale) {
+        final Message resp = BaseMessageFactory.createResponse(req, 401, "Unauthorized", "r1", null, null, null);
+        resp.setWwwAuthenticateHeader(nonces.createChallenge("atlanta.com", stale));
+        return resp;
+    }
+
+    private boolean accepted(Message req) {
+        return req.hasAuthorizationHeader()
+                && nonces.validate(req.getAuthorizationHeader()) == NonceService.VALID
+                && engine.check(req.getRequestLine().getMethod(), req.getAuthorizationHeader(), req.getBody());
+    }
+
+    public void testPreemptive() {
+        final ChallengeCache cache = new ChallengeCache();
+        cache.setCredentials("atlanta.com", "bob", "zanzibar");
+
+        final Message first = new Message(register);
+        assertFalse(cache.authorize(first));
+        assertTrue(cache.handleChallenge(first, challenge(first, false)));
+        assertEquals("00000001", first.getAuthorizationHeader().getNcParam());
+        assertTrue(accepted(first));
+
+        // later requests are authorized before being sent, with the next nonce-count
+        for (int i = 2; i < 5; i++) {
+            final Message next = new Message(register);
+            assertTrue(cache.authorize(next));
+            assertEquals("0000000" + i, next.getAuthorizationHeader().getNcParam());
+            assertTrue(accepted(next));
+        }
+
+        // other targets are not
+        assertFalse(cache.authorize(new Message(register.replace("sip:registrar.atlanta.com", "sip:registrar.biloxi.com"))));
+
+        // expired nonce
+        final Message stale = new Message(register);
+        cache.authorize(stale);
+        assertTrue(cache.handleChallenge(stale, challenge(stale, true)));
+        assertTrue(accepted(stale));
+        assertEquals(1, cache.size());
+    }
+
+    public void testRefused() {
+        final ChallengeCache cache = new ChallengeCache();
+        final Message req = new Message(register);
+        assertFalse(cache.handleChallenge(req, challenge(req, false)));
+
+        cache.setCredentials(null, "bob", "wrong");
+        final Message resp = challenge(req, false);
+        assertTrue(cache.handleChallenge(req, resp));
+        assertFalse(accepted(req));
+        // challenged again with the same nonce: the credentials are wrong
+        assertFalse(cache.handleChallenge(req, resp));
+        assertEquals(0, cache.size());
+    }
+
+    public void testRefusedWithFreshNonce() {
+        final ChallengeCache cache = new ChallengeCache();
+        cache.setCredentials("atlanta.com", "bob", "wrong");
+        final Message req = new Message(register);
+        final Message first = challenge(req, false);
+        assertTrue(cache.handleChallenge(req, first));
+        assertFalse(accepted(req));
+
+        // a new nonce for each challenge, as NonceService does
+        final Message second = challenge(req, false);
+        assertFalse(first.getWwwAuthenticateHeader().getNonceParam().equals(second.getWwwAuthenticateHeader().getNonceParam()));
+        assertFalse(cache.handleChallenge(req, second));
+        assertEquals(0, cache.size());
+        assertFalse(cache.authorize(new Message(register)));
+    }
+
+    public void testPreemptiveRechallenged() {
+        final ChallengeCache cache = new ChallengeCache();
+        cache.setCredentials("atlanta.com", "bob", "zanzibar");
+        final Message first = new Message(register);
+        assertTrue(cache.handleChallenge(first, challenge(first, false)));
+        assertTrue(accepted(first));
+
+        // the server no longer knows the nonce (e.g. restarted), and does not say stale
+        final Message second = new Message(register);
+        assertTrue(cache.authorize(second));
+        final String refused = second.getAuthorizationHeader().getNonceParam();
+        assertTrue(cache.handleChallenge(second, challenge(second, false)));
+        assertFalse(refused.equals(second.getAuthorizationHeader().getNonceParam()));
+        assertTrue(accepted(second));
+        assertEquals(1, cache.size());
+
+        // but the request sent again is not retried twice
+        assertFalse(cache.handleChallenge(second, challenge(second, false)));
+        assertEquals(0, cache.size());
+    }
+
+    public void testProxy() {
+        final ChallengeCache cache = new ChallengeCache();
+        cache.setCredentials("biloxi.com", "bob", "zanzibar");
+        final Message req = new Message(register.replace("REGISTER", "INVITE"));
+        final Message resp = BaseMessageFactory.createResponse(req, 407, "Proxy Authentication Required", "r1", null, null, null);
+        resp.setProxyAuthenticateHeader(new ProxyAuthenticateHeader("Digest realm=\"biloxi.com\", nonce=\"f84f1cec41e6cbe5aea9c8e88d359\", opaque=\"x\""));
+        assertTrue(cache.handleChallenge(req, resp));
+        assertFalse(req.hasAuthorizationHeader());
+        assertEquals("f84f1cec41e6cbe5aea9c8e88d359", req.getProxyAuthorizationHeader().getNonceParam());
+        assertNull(req.getProxyAuthorizationHeader().getNcParam());
+        assertTrue(engine.check("INVITE", req.getProxyAuthorizationHeader(), null));
+    }
+}
@@ -0,0 +1,34 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.header.DateHeader;
+import org.zoolu.tools.Clock;
+import org.zoolu.tools.DateFormat;
+
+import java.util.Date;
+
+public class ClockTest extends TestCase {
+
+    public void testClock() throws InterruptedException {
+        final long t = System.currentTimeMillis();
+        Thread.sleep(5 * Clock.getTick());
+        assertTrue(Clock.currentTimeMillis() >= t);
+        assertTrue(Math.abs(System.currentTimeMillis() - Clock.currentTimeMillis()) < 1000);
+    }
+
+    public void testDate() {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", DateFormat.formatEEEddMMM(new Date(784111777000L)));
+        assertEquals(784111777000L, DateFormat.parseEEEddMMM("Sun, 06 Nov 1994 08:49:37 GMT", 5).getTime());
+
+        final String date = Clock.getDate();
+        assertTrue(date, date.matches("[A-Z][a-z]{2}, \\d{2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT"));
+        // one snapshot, as the clock thread may move to the next second meanwhile
+        final long t = Clock.currentTimeMillis();
+        assertEquals(DateFormat.formatEEEddMMM(new Date(t)), Clock.formatDate(t));
+        assertEquals(DateFormat.formatEEEddMMM(new Date(784111777000L)), Clock.formatDate(784111777000L));
+
+        final DateHeader h = new DateHeader();
+        assertTrue(Math.abs(h.getDate().getTime() - System.currentTimeMillis()) < 2000);
+    }
+
+}
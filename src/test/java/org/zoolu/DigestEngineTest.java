@@ -0,0 +1,83 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.authentication.DigestAuthentication;
+import org.zoolu.sip.authentication.DigestEngine;
+import org.zoolu.sip.header.AuthorizationHeader;
+import org.zoolu.sip.header.WwwAuthenticateHeader;
+
+public class DigestEngineTest extends TestCase {
+
+    final DigestEngine.PasswordResolver passwords = new DigestEngine.PasswordResolver() {
+        public String getPassword(String username, String realm) {
+            return "atlanta.com".equals(realm) ? username + "-secret" : null;
+        }
+    };
+
+    private static AuthorizationHeader authorize(String method, String challenge, String qop, String body, String user, String passwd) {
+        final WwwAuthenticateHeader wh = new WwwAuthenticateHeader(challenge);
+        return new DigestAuthentication(method, "sip:atlanta.com", wh, qop, body, user, passwd, qop != null ? "00000001" : null).getAuthorizationHeader();
+    }
+
+    public void testCheck() {
+        final DigestEngine engine = new DigestEngine(passwords, 2);
+        final String challenge = "Digest realm=\"atlanta.com\", nonce=\"84a4cc6f3082121f32b42a2187831a9e\", algorithm=MD5";
+
+        final AuthorizationHeader plain = authorize("REGISTER", challenge, null, null, "alice", "alice-secret");
+        assertTrue(new DigestAuthentication("REGISTER", plain, null, "alice-secret", null).checkResponse());
+        assertTrue(engine.check("REGISTER", plain, null));
+        assertFalse(engine.check("INVITE", plain, null));
+        assertEquals(1, engine.getMissCount());
+        assertTrue(engine.check("REGISTER", plain, null));
+        assertEquals(2, engine.getHitCount());
+
+        final AuthorizationHeader auth = authorize("REGISTER", challenge + ", qop=\"auth\"", "auth", null, "bob", "bob-secret");
+        assertTrue(engine.check("REGISTER", auth, null));
+        final AuthorizationHeader wrong = authorize("REGISTER", challenge, null, null, "carol", "guess");
+        assertFalse(engine.check("REGISTER", wrong, null));
+
+        final String sdp = "v=0\r\no=alice 2890844526 2890844526 IN IP4 host.atlanta.com\r\n";
+        final AuthorizationHeader authInt = authorize("INVITE", challenge + ", qop=\"auth-int\"", "auth-int", sdp, "alice", "alice-secret");
+        assertTrue(engine.check("INVITE", authInt, sdp));
+        assertFalse(engine.check("INVITE", authInt, sdp + "a=x\r\n"));
+
+        final AuthorizationHeader sess = authorize("REGISTER", challenge.replace("MD5", "MD5-sess") + ", qop=\"auth\"", "auth", null, "alice", "alice-secret");
+        assertTrue(engine.check("REGISTER", sess, null));
+
+        // unknown realm
+        final AuthorizationHeader other = authorize("REGISTER", challenge.replace("atlanta", "biloxi"), null, null, "alice", "alice-secret");
+        assertFalse(engine.check("REGISTER", other, null));
+        assertTrue(engine.size() <= 2);
+
+        assertTrue(java.util.Arrays.equals(new boolean[]{true, true, false, false},
+                engine.check("REGISTER", new AuthorizationHeader[]{plain, auth, wrong, null})));
+    }
+
+    public void testPutHA1() {
+        final DigestEngine engine = new DigestEngine(null);
+        final String challenge = "Digest realm=\"biloxi.com\", nonce=\"dcd98b7102dd2f0e8b11d0f600bfb0c093\"";
+        final AuthorizationHeader ah = authorize("REGISTER", challenge, null, null, "bob", "zanzibar");
+        assertFalse(engine.check("REGISTER", ah, null));
+
+        final StringBuilder sb = new StringBuilder();
+        try {
+            final java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
+            for (byte b : md.digest("bob:biloxi.com:zanzibar".getBytes())) {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+        } catch (java.security.NoSuchAlgorithmException e) {
+            fail(e.toString());
+        }
+        engine.putHA1("bob", "biloxi.com", sb.toString().toUpperCase());
+        assertTrue(engine.check("REGISTER", ah, null));
+        engine.invalidate("bob", "biloxi.com");
+        assertFalse(engine.check("REGISTER", ah, null));
+
+        try {
+            engine.putHA1("bob", "biloxi.com", "xyz");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
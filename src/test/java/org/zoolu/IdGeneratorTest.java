@@ -0,0 +1,64 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.provider.SipProviderInformation;
+import org.zoolu.tools.IdGenerator;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class IdGeneratorTest extends TestCase {
+
+    public void testFormat() {
+        final IdGenerator g = IdGenerator.getInstance();
+        assertNull(g.getNodeId());
+        assertTrue(g.nextTag().matches("[0-9A-Za-z_-]{" + IdGenerator.TAG_LENGTH + "}"));
+        assertTrue(g.nextBranch().matches("z9hG4bK[0-9A-Za-z_-]{" + IdGenerator.BRANCH_LENGTH + "}"));
+        assertTrue(g.nextCallId("10.0.0.1").matches("[0-9A-Za-z_-]{" + IdGenerator.CALL_ID_LENGTH + "}_10\\.0\\.0\\.1"));
+
+        final IdGenerator n = new IdGenerator("node7");
+        assertEquals("node7", n.getNodeId());
+        assertTrue(n.nextTag().startsWith("node7."));
+        assertTrue(n.nextBranch().startsWith("z9hG4bKnode7."));
+        assertEquals(6 + 25, n.nextId(25).length());
+
+        try {
+            new IdGenerator("a.b");
+            fail("Node id should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        final byte[] b = new byte[16];
+        assertEquals(14, IdGenerator.fill(b, 2, 12));
+        assertEquals(0, b[0]);
+        assertTrue(new String(b, 2, 12).matches("[0-9A-Za-z_-]{12}"));
+
+        final SipProviderInformation info = new SipProviderInformation("10.0.0.1", 5060);
+        info.setIdGenerator(n);
+        assertTrue(info.pickTag().startsWith("node7."));
+        assertTrue(info.pickCallId().endsWith("_10.0.0.1"));
+    }
+
+    public void testUniqueness() throws InterruptedException {
+        final Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final ExecutorService service = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            service.execute(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        ids.add(IdGenerator.getInstance().nextTag());
+                    }
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40000, ids.size());
+    }
+
+}
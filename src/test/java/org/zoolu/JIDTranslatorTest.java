@@ -0,0 +1,99 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.message.JIDTranslator;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.Participants;
+
+public class JIDTranslatorTest extends TestCase {
+
+    public void testTranslate() {
+        final JIDTranslator translator = new JIDTranslator(100);
+        final String to = "Bob <sip:Bob@Biloxi.com:5060;transport=udp>;tag=a6c85cf";
+        final JIDTranslator.Entry e = translator.getEntryForAddress(to);
+        assertEquals("bob@biloxi.com/a6c85cf", e.getJID());
+        assertEquals("bob@biloxi.com", e.getBareJID());
+        assertEquals("bob", e.getUser());
+        assertEquals("biloxi.com", e.getHost());
+        assertEquals("a6c85cf", e.getTag());
+        assertSame(e, translator.getEntryForAddress(to));
+        assertEquals(1, translator.getHitCount());
+
+        // and back, sharing the same entry
+        assertSame(e, translator.getEntry("bob@biloxi.com/a6c85cf"));
+        final NameAddress na = translator.getNameAddress("bob@biloxi.com/a6c85cf");
+        assertEquals("sip:bob@biloxi.com", na.getAddress().toString());
+        // copies are handed out
+        na.getAddress().addLr();
+        assertEquals("sip:bob@biloxi.com", e.getNameAddress().getAddress().toString());
+
+        final JIDTranslator.Entry domain = translator.getEntry("xmpp.org");
+        assertNull(domain.getUser());
+        assertNull(domain.getTag());
+        assertEquals("sip:xmpp.org", domain.getSipURL().toString());
+
+        assertNull(translator.getJID("Bob"));
+    }
+
+    public void testPinning() {
+        final JIDTranslator translator = new JIDTranslator(8);
+        final JIDTranslator.Entry alice = translator.pin("call-1", "alice@atlanta.com/1");
+        translator.pin("call-2", "alice@atlanta.com/1");
+        for (int i = 0; i < 100; i++) {
+            translator.getEntry("user" + i + "@xmpp.org");
+        }
+        assertTrue(translator.size() <= 8);
+        assertSame(alice, translator.getEntry("alice@atlanta.com/1"));
+        assertSame(alice, translator.getEntryForAddress("<sip:alice@atlanta.com>;tag=1"));
+
+        translator.release("call-1");
+        assertTrue(translator.isPinned("alice@atlanta.com/1"));
+        translator.release("call-2");
+        assertFalse(translator.isPinned("alice@atlanta.com/1"));
+        translator.release("call-3");
+    }
+
+    public void testPinningBothWays() {
+        final JIDTranslator translator = new JIDTranslator(8);
+        final String to = "Bob <sip:bob@biloxi.com>;tag=a6c85cf";
+        final JIDTranslator.Entry bob = translator.pinAddress("call-1", to);
+        assertEquals("bob@biloxi.com/a6c85cf", bob.getJID());
+        assertNull(translator.pinAddress("call-1", "Bob"));
+
+        // a value translated after pinning is pinned too
+        translator.pin("call-2", "alice@atlanta.com/1");
+        final String from = "<sip:alice@atlanta.com>;tag=1";
+        final JIDTranslator.Entry alice = translator.getEntryForAddress(from);
+
+        for (int i = 0; i < 100; i++) {
+            translator.getEntryForAddress("<sip:user" + i + "@xmpp.org>;tag=" + i);
+            translator.getEntry("other" + i + "@xmpp.org");
+        }
+        final long misses = translator.getMissCount();
+        assertSame(bob, translator.getEntryForAddress(to));
+        assertSame(bob, translator.getEntry(bob.getJID()));
+        assertSame(alice, translator.getEntryForAddress(from));
+        assertSame(alice, translator.getEntry(alice.getJID()));
+        assertEquals(misses, translator.getMissCount());
+
+        translator.release("call-1");
+        translator.release("call-2");
+        for (int i = 0; i < 100; i++) {
+            translator.getEntryForAddress("<sip:user" + i + "@xmpp.org>;tag=" + i);
+        }
+        assertEquals("bob@biloxi.com/a6c85cf", translator.getJID(to));
+        assertEquals(misses + 101, translator.getMissCount());
+    }
+
+    public void testResponse() {
+        final Message msg = new Message("BYE sip:alice@pc33.atlanta.com SIP/2.0\r\n" +
+                "Via: SIP/2.0/UDP 192.0.2.4;branch=z9hG4bKnashds10\r\n" +
+                "From: Bob <sip:bob@biloxi.com>;tag=a6c85cf\r\n" +
+                "To: Alice <sip:alice@atlanta.com>;tag=1928301774\r\n" +
+                "Call-ID: a84b4c76e66710\r\n" +
+                "CSeq: 231 BYE\r\n" +
+                "\r\n");
+        assertEquals("alice@atlanta.com/1928301774", Participants.getFromJidForResponse(msg));
+    }
+}
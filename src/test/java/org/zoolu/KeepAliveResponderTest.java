@@ -0,0 +1,159 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.LoopbackDatagramChannel;
+import org.xmpp.jnodes.nio.SelDatagramChannel;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.provider.KeepAliveResponder;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class KeepAliveResponderTest extends TestCase {
+
+    final String options = "OPTIONS sip:192.0.2.4 SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP 192.0.2.1:5060;branch=z9hG4bKhjhs8ass877\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "To: <sip:192.0.2.4>\r\n" +
+            "From: <sip:lb@192.0.2.1>;tag=1928301774\r\n" +
+            "Call-ID: a84b4c76e66710\r\n" +
+            "CSeq: 63104 OPTIONS\r\n" +
+            "Content-Length: 0\r\n" +
+            "\r\n";
+
+    final List<String> received = new ArrayList<String>();
+    final List<String> forwarded = new ArrayList<String>();
+
+    private static String read(ByteBuffer buffer) {
+        final byte[] d = new byte[buffer.position()];
+        buffer.rewind();
+        buffer.get(d, 0, d.length);
+        return new String(d);
+    }
+
+    public void testAutoRespond() throws IOException {
+        final SocketAddress a = new InetSocketAddress("127.0.0.1", 15070);
+        final SocketAddress b = new InetSocketAddress("127.0.0.1", 15072);
+
+        final LoopbackDatagramChannel ca = LoopbackDatagramChannel.open(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                received.add(read(buffer));
+            }
+        }, a);
+        final KeepAliveResponder responder = new KeepAliveResponder(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                forwarded.add(read(buffer));
+            }
+        });
+        responder.setLocalTag("ka1");
+        final LoopbackDatagramChannel cb = LoopbackDatagramChannel.open(responder, b);
+
+        try {
+            ca.send(ByteBuffer.wrap(options.getBytes()), b);
+            assertEquals(1, received.size());
+            assertEquals(0, forwarded.size());
+            assertEquals(1, responder.getOptionsCount());
+
+            final String raw = received.get(0);
+            final Message r = new Message(raw.getBytes(), 0, raw.length());
+            assertEquals(200, r.getStatusLine().getCode());
+            assertEquals("ka1", r.getToHeader().getTag());
+            assertEquals("1928301774", r.getFromHeader().getTag());
+            assertEquals("a84b4c76e66710", r.getCallIdHeader().getCallId());
+            assertEquals("OPTIONS", r.getCSeqHeader().getMethod());
+            assertEquals(KeepAliveResponder.DEFAULT_ALLOW, r.getHeader("Allow").getValue());
+            assertEquals(0, r.getContentLengthHeader().getContentLength());
+
+            // keep-alives
+            ca.send(ByteBuffer.wrap("\r\n\r\n".getBytes()), b);
+            assertEquals(2, received.size());
+            assertEquals("\r\n", received.get(1));
+            responder.setPongEnabled(false);
+            ca.send(ByteBuffer.wrap("\r\n\r\n".getBytes()), b);
+            assertEquals(2, received.size());
+            assertEquals(2, responder.getKeepAliveCount());
+            assertEquals(0, forwarded.size());
+
+            // in-dialog OPTIONS, other requests and disabled OPTIONS go to the listener
+            final String inDialog = options.replace("<sip:192.0.2.4>", "<sip:192.0.2.4>;tag=x1");
+            ca.send(ByteBuffer.wrap(inDialog.getBytes()), b);
+            ca.send(ByteBuffer.wrap(options.replace("OPTIONS", "MESSAGE").getBytes()), b);
+            ca.send(ByteBuffer.wrap(options.substring(0, 80).getBytes()), b);
+            responder.setOptionsEnabled(false);
+            ca.send(ByteBuffer.wrap(options.getBytes()), b);
+            assertEquals(2, received.size());
+            assertEquals(4, forwarded.size());
+            assertEquals(inDialog, forwarded.get(0));
+            assertEquals(1, responder.getOptionsCount());
+        } finally {
+            ca.close();
+            cb.close();
+        }
+    }
+
+    public void testPingEachOther() throws IOException {
+        final SocketAddress a = new InetSocketAddress("127.0.0.1", 15076);
+        final SocketAddress b = new InetSocketAddress("127.0.0.1", 15078);
+        final KeepAliveResponder ra = new KeepAliveResponder(null);
+        final KeepAliveResponder rb = new KeepAliveResponder(null);
+        final LoopbackDatagramChannel ca = LoopbackDatagramChannel.open(ra, a);
+        final LoopbackDatagramChannel cb = LoopbackDatagramChannel.open(rb, b);
+        try {
+            // the ping is answered, the pong is not
+            ca.send(ByteBuffer.wrap("\r\n\r\n".getBytes()), b);
+            assertEquals(1, rb.getKeepAliveCount());
+            assertEquals(1, ra.getKeepAliveCount());
+
+            // nor is a lone (e.g. spoofed) CRLF, or any other sequence
+            ca.send(ByteBuffer.wrap("\r\n".getBytes()), b);
+            ca.send(ByteBuffer.wrap("\r\n\r\n\r\n".getBytes()), b);
+            assertEquals(3, rb.getKeepAliveCount());
+            assertEquals(1, ra.getKeepAliveCount());
+            assertEquals(0, ca.getPendingCount() + cb.getPendingCount());
+        } finally {
+            ca.close();
+            cb.close();
+        }
+    }
+
+    public void testSelectorFilter() throws Exception {
+        final SocketAddress b = new InetSocketAddress("127.0.0.1", 15074);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final SelDatagramChannel cb = SelDatagramChannel.open(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                forwarded.add(read(buffer));
+                delivered.countDown();
+            }
+        }, b);
+        final KeepAliveResponder responder = new KeepAliveResponder(null);
+        cb.setDatagramFilter(responder);
+        final DatagramSocket client = new DatagramSocket(0, java.net.InetAddress.getByName("127.0.0.1"));
+        client.setSoTimeout(5000);
+        try {
+            client.send(new DatagramPacket(options.getBytes(), options.length(), b));
+            final DatagramPacket p = new DatagramPacket(new byte[1500], 1500);
+            client.receive(p);
+            assertTrue(new String(p.getData(), 0, p.getLength()).startsWith("SIP/2.0 200 OK\r\n"));
+            assertEquals(1, responder.getOptionsCount());
+
+            final String message = options.replace("OPTIONS", "MESSAGE");
+            client.send(new DatagramPacket(message.getBytes(), message.length(), b));
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, forwarded.size());
+            assertEquals(message, forwarded.get(0));
+        } finally {
+            client.close();
+            cb.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.LoopbackDatagramChannel;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoopbackDatagramChannelTest extends TestCase {
+
+    public void testPingPong() throws IOException {
+
+        final AtomicInteger received = new AtomicInteger(0);
+        final SocketAddress a = new InetSocketAddress("127.0.0.1", 15060);
+        final SocketAddress b = new InetSocketAddress("127.0.0.1", 15062);
+
+        final LoopbackDatagramChannel ca = LoopbackDatagramChannel.open(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                received.incrementAndGet();
+            }
+        }, a);
+
+        final LoopbackDatagramChannel cb = LoopbackDatagramChannel.open(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                try {
+                    final byte d[] = new byte[buffer.position()];
+                    buffer.rewind();
+                    buffer.get(d, 0, d.length);
+                    assertEquals("ping", new String(d));
+                    channel.send(ByteBuffer.wrap("pong".getBytes()), address);
+                } catch (IOException e) {
+                    fail(e.toString());
+                }
+            }
+        }, b);
+
+        try {
+            for (int i = 0; i < 1000; i++) {
+                ca.send(ByteBuffer.wrap("ping".getBytes()), b);
+            }
+            assertEquals(1000, received.get());
+
+            try {
+                LoopbackDatagramChannel.open(null, a);
+                fail("Address should be in use");
+            } catch (BindException e) {
+                // expected
+            }
+        } finally {
+            ca.close();
+            cb.close();
+        }
+    }
+
+}
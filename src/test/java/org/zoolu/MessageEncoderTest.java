@@ -0,0 +1,103 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.xmpp.jnodes.nio.DatagramListener;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.xmpp.jnodes.nio.ListenerDatagramChannelFactory;
+import org.xmpp.jnodes.nio.LoopbackDatagramChannel;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.MessageEncoder;
+import org.zoolu.sip.message.SipChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageEncoderTest extends TestCase {
+
+    final String invite = "INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "To: Bob <sip:bob@biloxi.com>\r\n" +
+            "From: Alice <sip:alice@atlanta.com>;tag=1928301774\r\n" +
+            "Call-ID: a84b4c76e66710@pc33.atlanta.com\r\n" +
+            "CSeq: 314159 INVITE\r\n" +
+            "Contact: <sip:alice@pc33.atlanta.com>\r\n" +
+            "Content-Type: application/sdp\r\n" +
+            "Content-Length: 4\r\n" +
+            "\r\n" +
+            "abcd";
+
+    public void testCompact() {
+        final Message m = new Message(invite);
+        final String compact = MessageEncoder.COMPACT.encode(m);
+        assertTrue(compact.contains("\r\nv:SIP/2.0/UDP"));
+        assertTrue(compact.contains("\r\ni:a84b4c76e66710@pc33.atlanta.com\r\n"));
+        assertTrue(compact.contains("\r\nl:4\r\n"));
+        assertTrue(compact.contains("\r\nMax-Forwards:70\r\n"));
+        assertTrue(compact.endsWith("\r\n\r\nabcd"));
+        assertTrue(compact.length() < m.toString().length());
+
+        final Message c = new Message(compact.getBytes(), 0, compact.length());
+        assertEquals(m.getCallIdHeader().getCallId(), c.getCallIdHeader().getCallId());
+        assertEquals(m.getFromHeader().getTag(), c.getFromHeader().getTag());
+        assertEquals("abcd", c.getBody());
+    }
+
+    public void testSizeAware() {
+        final Message m = new Message(invite);
+        assertEquals(m.toString(), MessageEncoder.EXTENDED.encode(m));
+        assertEquals(m.toString(), MessageEncoder.SIZE_AWARE.encode(m));
+
+        final int length = m.toString().length();
+        assertEquals(m.toString(true), new MessageEncoder(length - 1).encode(m));
+        assertEquals(length, new MessageEncoder(length).encodeBytes(m).length);
+    }
+
+    public void testThresholdInBytes() {
+        if (!"UTF-8".equals(Charset.defaultCharset().name())) {
+            return;
+        }
+        final Message m = new Message(invite.replace("Length: 4", "Length: 8").replace("abcd", "\u00e9\u00e9\u00e9\u00e9"));
+        final int chars = m.toString().length();
+        final int bytes = m.toString().getBytes().length;
+        assertEquals(chars + 4, bytes);
+        // fits in chars, not in bytes
+        assertEquals(m.toString(true), new MessageEncoder(chars).encode(m));
+        assertEquals(m.toString(), new MessageEncoder(bytes).encode(m));
+        assertEquals(bytes, new MessageEncoder(bytes).encodeBytes(m).length);
+    }
+
+    public void testSipChannel() throws IOException {
+        final List<String> received = new ArrayList<String>();
+        final SocketAddress remote = new InetSocketAddress("127.0.0.1", 15090);
+        final LoopbackDatagramChannel peer = LoopbackDatagramChannel.open(new DatagramListener() {
+            public void datagramReceived(ListenerDatagramChannel channel, ByteBuffer buffer, SocketAddress address) {
+                received.add(new String(buffer.array(), 0, buffer.position()));
+            }
+        }, remote);
+        final ListenerDatagramChannelFactory factory = SipChannel.getChannelFactory();
+        SipChannel.setChannelFactory(LoopbackDatagramChannel.FACTORY);
+        try {
+            final SipChannel channel = new SipChannel("test", remote, "127.0.0.1", 15092, null);
+            assertSame(MessageEncoder.SIZE_AWARE, channel.getMessageEncoder());
+            final Message m = new Message(invite);
+            channel.send(m, null);
+            channel.setMessageEncoder(MessageEncoder.COMPACT);
+            channel.send(m, remote);
+            channel.shutdown();
+
+            assertEquals(2, received.size());
+            assertEquals(m.toString(), received.get(0));
+            assertEquals(m.toString(true), received.get(1));
+        } finally {
+            SipChannel.setChannelFactory(factory);
+            peer.close();
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.header.FromHeader;
+import org.zoolu.sip.header.Header;
+import org.zoolu.sip.header.NameAddressCache;
+
+public class NameAddressCacheTest extends TestCase {
+
+    public void testCache() {
+
+        final NameAddressCache cache = NameAddressCache.getInstance();
+        cache.clear();
+
+        final String value = "\"Alice\" <sip:alice@atlanta.com;transport=tcp>;tag=1928301774";
+        final FromHeader from = new FromHeader(new Header("From", value));
+
+        final NameAddress a = from.getNameAddress();
+        assertEquals("Alice", a.getDisplayName());
+        assertEquals("atlanta.com", a.getAddress().getHost());
+        assertEquals("1928301774", from.getTag());
+
+        // copies are not shared
+        a.getAddress().removeParameters();
+        a.setDisplayName("Eve");
+        final NameAddress b = new FromHeader(new Header("From", value)).getNameAddress();
+        assertEquals("Alice", b.getDisplayName());
+        assertEquals("tcp", b.getAddress().getTransport());
+        assertEquals("1928301774", new FromHeader(new Header("From", value)).getTag());
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+
+        assertNull(new FromHeader(new Header("From", "<sip:bob@biloxi.com>")).getTag());
+        assertNull(new FromHeader(new Header("From", "<sip:bob@biloxi.com>")).getTag());
+    }
+
+}
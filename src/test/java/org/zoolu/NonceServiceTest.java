@@ -0,0 +1,102 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.authentication.DigestAuthentication;
+import org.zoolu.sip.authentication.NonceCountTable;
+import org.zoolu.sip.authentication.NonceService;
+import org.zoolu.sip.header.AuthorizationHeader;
+import org.zoolu.sip.header.WwwAuthenticateHeader;
+
+public class NonceServiceTest extends TestCase {
+
+    final byte[] secret = "0123456789abcdef0123456789abcdef".getBytes();
+
+    public void testStateless() {
+        final NonceService a = new NonceService(secret);
+        final NonceService b = new NonceService(secret.clone());
+        final String nonce = a.issue("atlanta.com");
+        assertEquals(NonceService.NONCE_LENGTH, nonce.length());
+        assertFalse(nonce.equals(a.issue("atlanta.com")));
+
+        // any node with the key validates it
+        assertEquals(NonceService.VALID, b.validate(nonce, "atlanta.com"));
+        assertEquals(NonceService.INVALID, b.validate(nonce, "biloxi.com"));
+        assertEquals(NonceService.INVALID, new NonceService("other".getBytes()).validate(nonce, "atlanta.com"));
+        final char c = nonce.charAt(30) == '0' ? '1' : '0';
+        assertEquals(NonceService.INVALID, b.validate(nonce.substring(0, 30) + c + nonce.substring(31), "atlanta.com"));
+        assertEquals(NonceService.INVALID, b.validate(nonce.substring(1), "atlanta.com"));
+        assertEquals(NonceService.INVALID, b.validate(null, "atlanta.com"));
+    }
+
+    public void testStale() throws InterruptedException {
+        final NonceService s = new NonceService(secret, 50, null);
+        final String nonce = s.issue(null);
+        assertEquals(NonceService.VALID, s.validate(nonce, null));
+        Thread.sleep(80);
+        assertEquals(NonceService.STALE, s.validate(nonce, null));
+    }
+
+    public void testReplay() {
+        final NonceService s = new NonceService(secret, 60000, new NonceCountTable(64, 60000));
+        final String n1 = s.issue("atlanta.com");
+        final String n2 = s.issue("atlanta.com");
+        assertEquals(NonceService.VALID, s.validate(n1, "atlanta.com", 1));
+        assertEquals(NonceService.REPLAYED, s.validate(n1, "atlanta.com", 1));
+        assertEquals(NonceService.VALID, s.validate(n2, "atlanta.com", 1));
+        assertEquals(NonceService.VALID, s.validate(n1, "atlanta.com", 2));
+        assertEquals(NonceService.VALID, s.validate(n1, "atlanta.com", 5));
+        assertEquals(NonceService.REPLAYED, s.validate(n1, "atlanta.com", 3));
+        assertEquals(NonceService.REPLAYED, s.validate(n2, "atlanta.com", NonceCountTable.MAX_NC + 1));
+
+        final WwwAuthenticateHeader challenge = s.createChallenge("atlanta.com", false);
+        final DigestAuthentication da = new DigestAuthentication("REGISTER", "sip:atlanta.com", challenge, "auth", null, "alice", "secret", "00000001");
+        final AuthorizationHeader ah = da.getAuthorizationHeader();
+        assertEquals(NonceService.VALID, s.validate(ah));
+        assertEquals(NonceService.REPLAYED, s.validate(ah));
+        assertEquals("true", s.createChallenge("atlanta.com", true).getParameter("stale"));
+    }
+
+    public void testNoQop() {
+        final NonceService s = new NonceService(secret, 60000, new NonceCountTable(64, 60000));
+        final WwwAuthenticateHeader challenge = s.createChallenge("atlanta.com", false);
+
+        // no qop, no nonce-count: the nonce is reusable within its lifetime
+        final AuthorizationHeader plain = new DigestAuthentication("REGISTER", "sip:atlanta.com", challenge, null, null, "alice", "secret", null).getAuthorizationHeader();
+        assertFalse(plain.hasQopParam());
+        assertEquals(NonceService.VALID, s.validate(plain));
+        assertEquals(NonceService.VALID, s.validate(plain));
+
+        // qop without nonce-count is malformed
+        final AuthorizationHeader noNc = new DigestAuthentication("REGISTER", "sip:atlanta.com", challenge, "auth", null, "alice", "secret", null).getAuthorizationHeader();
+        assertTrue(noNc.hasQopParam());
+        assertFalse(noNc.hasNcParam());
+        assertEquals(NonceService.INVALID, s.validate(noNc));
+    }
+
+    public void testTableTtlMismatch() {
+        try {
+            new NonceService(secret, 60000, new NonceCountTable(64, 30000));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(60000, new NonceCountTable(64, 60000).getTtl());
+    }
+
+    public void testTableFull() {
+        final NonceCountTable t = new NonceCountTable(8, 60000);
+        final long now = System.currentTimeMillis();
+        // entries of expired epochs
+        for (int i = 0; i < 8; i++) {
+            assertTrue(t.update(i << 8, now - 3 * 60000, 1));
+        }
+        // are reused by live nonces
+        for (int i = 8; i < 16; i++) {
+            assertTrue(t.update(i << 8, now, 1));
+        }
+        assertFalse(t.update(16 << 8, now, 1));
+        assertTrue(t.update(9 << 8, now, 2));
+        assertFalse(t.update(9 << 8, now, 2));
+        assertEquals(8, t.capacity());
+    }
+}
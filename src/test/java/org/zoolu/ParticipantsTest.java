@@ -0,0 +1,53 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.Participants;
+import org.zoolu.sip.message.SipParsingException;
+
+public class ParticipantsTest extends TestCase {
+
+    private static Message invite(String from, String to) {
+        return new Message("INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+                "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+                "From: " + from + "\r\n" +
+                "t: " + to + "\r\n" +
+                "Call-ID: a84b4c76e66710\r\n" +
+                "CSeq: 314159 INVITE\r\n" +
+                "\r\n");
+    }
+
+    public void testParticipants() throws SipParsingException {
+        Participants p = invite("\"Alice <x>;tag=no\" <sip:Alice@Atlanta.COM:5060;transport=udp>;tag=AbC", "sip:bob@biloxi.com ; tag = 1").getParticipants();
+        assertEquals("alice@atlanta.com/AbC", p.getInitiator());
+        assertEquals("bob@biloxi.com/1", p.getResponder());
+
+        p = invite("<sips:carol@chicago.com>;x=1", "<tel:+15551234>").getParticipants();
+        assertEquals("carol@chicago.com", p.getInitiator());
+        assertEquals("+15551234", p.getResponder());
+
+        p = invite("<sip:[2001:db8::1]:5060>;tag=9", "sip:user:pw@Host.com").getParticipants();
+        assertEquals("[2001:db8::1]/9", p.getInitiator());
+        assertEquals("user@host.com", p.getResponder());
+    }
+
+    public void testLazy() throws SipParsingException {
+        final Message msg = invite("<sip:alice@atlanta.com>;tag=1", "<sip:bob@biloxi.com>");
+        final Participants p = msg.getParticipants();
+        assertSame(p, msg.getParticipants());
+        assertSame(p, new Message(msg).getParticipants());
+
+        try {
+            invite("Alice", "<sip:bob@biloxi.com>").getParticipants();
+            fail();
+        } catch (SipParsingException e) {
+            // expected
+        }
+        try {
+            new Message("OPTIONS sip:bob@biloxi.com SIP/2.0\r\nCall-ID: 1\r\n\r\n").getParticipants();
+            fail();
+        } catch (SipParsingException e) {
+            // expected
+        }
+    }
+}
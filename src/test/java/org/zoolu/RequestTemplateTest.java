@@ -0,0 +1,51 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.message.BaseMessageFactory;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.RequestTemplate;
+import org.zoolu.sip.provider.SipStack;
+
+public class RequestTemplateTest extends TestCase {
+
+    public void testTemplate() {
+        final NameAddress contact = new NameAddress(new SipURL("alice", "10.0.0.1"));
+        final NameAddress to = new NameAddress("Bob", new SipURL("bob", "biloxi.com"));
+        final NameAddress from = new NameAddress(new SipURL("alice", "atlanta.com"));
+        final SipURL uri = new SipURL("bob", "biloxi.com");
+
+        final RequestTemplate t = BaseMessageFactory.getRequestTemplate("OPTIONS", "udp", "10.0.0.1", 5060, true, contact);
+        assertSame(t, BaseMessageFactory.getRequestTemplate("OPTIONS", "udp", "10.0.0.1", 5060, true, new NameAddress(new SipURL("alice", "10.0.0.1"))));
+
+        final Message m = t.createRequest(uri, to, from, "call1", 7, "ft", null, "z9hG4bKb1", null);
+        final String expected = "OPTIONS sip:bob@biloxi.com SIP/2.0\r\n" +
+                "Via: SIP/2.0/UDP 10.0.0.1:5060;rport;branch=z9hG4bKb1\r\n" +
+                "Max-Forwards: 70\r\n" +
+                "To: \"Bob\" <sip:bob@biloxi.com>\r\n" +
+                "From: <sip:alice@atlanta.com>;tag=ft\r\n" +
+                "Call-ID: call1\r\n" +
+                "CSeq: 7 OPTIONS\r\n" +
+                "Contact: <sip:alice@10.0.0.1>\r\n" +
+                "Expires: " + SipStack.default_expires + "\r\n" +
+                "User-Agent: " + SipStack.uaInfo + "\r\n" +
+                "Content-Length: 0\r\n" +
+                "\r\n\r\n";
+        assertEquals(expected, m.toString());
+        assertEquals(expected, t.encode(uri, to, from, "call1", 7, "ft", null, "z9hG4bKb1", null));
+        assertEquals("z9hG4bKb1", m.getViaHeader().getBranch());
+        assertEquals("ft", m.getFromHeader().getTag());
+        assertEquals(7, m.getCSeqHeader().getSequenceNumber());
+
+        final Message i = BaseMessageFactory.createRequest("INVITE", uri, to, from, null, "udp", "10.0.0.1", 5060, false, "call2", 1, "ft", "tt", null, " v=0\r\n");
+        assertEquals("z9hG4bKcall2", i.getViaHeader().getBranch());
+        assertEquals("tt", i.getToHeader().getTag());
+        assertEquals("v=0", i.getBody());
+        assertEquals(3, i.getContentLengthHeader().getContentLength());
+        assertFalse(i.hasContactHeader());
+        final RequestTemplate it = BaseMessageFactory.getRequestTemplate("INVITE", "udp", "10.0.0.1", 5060, false, null);
+        assertEquals(i.toString(), it.encode(uri, to, from, "call2", 1, "ft", "tt", null, " v=0\r\n"));
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.address.NameAddress;
+import org.zoolu.sip.address.SipURL;
+import org.zoolu.sip.message.BaseMessageFactory;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.SipParsingException;
+import org.zoolu.sip.provider.ResponseSplicer;
+
+public class ResponseSplicerTest extends TestCase {
+
+    final String invite = "INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP proxy.biloxi.com;branch=z9hG4bK83842.1\r\n" +
+            "v: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+            "Max-Forwards: 69\r\n" +
+            "Record-Route: <sip:proxy.biloxi.com;lr>\r\n" +
+            "To: Bob <sip:bob@biloxi.com;transport=udp>\r\n" +
+            "From: \"Alice;tag=no\" <sip:alice@atlanta.com>;tag=1928301774\r\n" +
+            "i: a84b4c76e66710@pc33.atlanta.com\r\n" +
+            "CSeq: 314159\r\n  INVITE\r\n" +
+            "Contact: <sip:alice@pc33.atlanta.com>\r\n" +
+            "Content-Type: application/sdp\r\n" +
+            "Content-Length: 4\r\n" +
+            "\r\n" +
+            "abcd";
+
+    public void testSplice() throws SipParsingException {
+        final byte[] data = ("junk" + invite).getBytes();
+        final NameAddress contact = new NameAddress(new SipURL("bob", "192.0.2.4"));
+        final byte[] raw = ResponseSplicer.createResponse(data, 4, data.length - 4, 200, "OK", "a6c85cf", contact);
+        final Message r = new Message(raw, 0, raw.length);
+
+        final Message expected = BaseMessageFactory.createResponse(new Message(invite), 200, "OK", "a6c85cf", contact, null, null);
+        assertEquals(200, r.getStatusLine().getCode());
+        assertEquals(expected.getVias().getValues(), r.getVias().getValues());
+        assertEquals(expected.getRecordRouteSet().getValue(), r.getRecordRouteSet().getValue());
+        assertEquals("a6c85cf", r.getToHeader().getTag());
+        assertEquals("1928301774", r.getFromHeader().getTag());
+        assertEquals(expected.getCallIdHeader().getCallId(), r.getCallIdHeader().getCallId());
+        assertEquals(314159, r.getCSeqHeader().getSequenceNumber());
+        assertEquals("INVITE", r.getCSeqHeader().getMethod());
+        assertEquals(expected.getContactHeader().getValue(), r.getContactHeader().getValue());
+        assertFalse(r.hasHeader("Max-Forwards"));
+        assertEquals(0, r.getContentLengthHeader().getContentLength());
+        assertNull(r.getBody());
+
+        final byte[] trying = ResponseSplicer.createResponse(invite.getBytes(), 0, invite.length(), 100, "Trying", null, null);
+        final Message t = new Message(trying, 0, trying.length);
+        assertFalse(t.getToHeader().hasTag());
+        assertFalse(t.hasRecordRouteHeader());
+        assertEquals("Via: SIP/2.0/UDP proxy.biloxi.com;branch=z9hG4bK83842.1", new String(trying).split("\r\n")[1]);
+    }
+
+    public void testExistingTag() throws SipParsingException {
+        final String bye = invite.replace("transport=udp>", "transport=udp>;tag=x1").replace("INVITE", "BYE");
+        final byte[] raw = ResponseSplicer.createResponse(bye.getBytes(), 0, bye.length(), 200, "OK", "other", null);
+        assertEquals("x1", new Message(raw, 0, raw.length).getToHeader().getTag());
+
+        try {
+            ResponseSplicer.createResponse("BYE sip:a@b SIP/2.0\r\nVia: x".getBytes(), 0, 25, 200, "OK", null, null);
+            fail("Incomplete request");
+        } catch (SipParsingException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.provider.RetransmissionDetector;
+
+public class RetransmissionDetectorTest extends TestCase {
+
+    public void testDetection() {
+
+        final RetransmissionDetector<String> detector = new RetransmissionDetector<String>(1000, RetransmissionDetector.DEFAULT_TTL);
+        final byte[] invite = "INVITE sip:bob@biloxi.com SIP/2.0\r\nVia: SIP/2.0/UDP h;branch=z9hG4bK1\r\nCSeq: 1 INVITE\r\n\r\n".getBytes();
+        final byte[] other = "INVITE sip:bob@biloxi.com SIP/2.0\r\nVia: SIP/2.0/UDP h;branch=z9hG4bK2\r\nCSeq: 1 INVITE\r\n\r\n".getBytes();
+
+        final RetransmissionDetector.Fingerprint fp = RetransmissionDetector.fingerprint(invite, 0, invite.length);
+        assertFalse(detector.isRetransmission(fp));
+        assertNull(detector.getResponse(fp));
+        detector.setResponse(fp, "100 Trying");
+
+        final byte[] copy = new byte[invite.length + 4];
+        System.arraycopy(invite, 0, copy, 4, invite.length);
+        assertTrue(detector.isRetransmission(copy, 4, invite.length));
+        assertEquals("100 Trying", detector.getResponse(RetransmissionDetector.fingerprint(copy, 4, invite.length)));
+        assertFalse(detector.isRetransmission(other, 0, other.length));
+
+        assertEquals(1, detector.getRetransmissionCount());
+        assertEquals(2, detector.size());
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.header.Header;
+import org.zoolu.sip.header.RouteSet;
+import org.zoolu.sip.header.SipHeaders;
+import org.zoolu.sip.message.Message;
+
+public class RouteSetTest extends TestCase {
+
+    public void testDeque() {
+        final RouteSet rs = new RouteSet(SipHeaders.Record_Route);
+        rs.addBottom(new Header(SipHeaders.Record_Route, "<sip:p1.example.com;lr>, <sip:p2.example.com;lr>"));
+        rs.addBottom(new Header(SipHeaders.Record_Route, "<sip:p3.example.com>"));
+        assertEquals(3, rs.size());
+        assertTrue(rs.getTop().hasLr());
+        assertFalse(rs.getBottom().hasLr());
+        assertEquals("p1.example.com", rs.getTop().getAddress().getHost());
+        assertEquals("<sip:p1.example.com;lr>, <sip:p2.example.com;lr>, <sip:p3.example.com>", rs.getValue());
+
+        rs.reverse();
+        assertEquals("<sip:p3.example.com>, <sip:p2.example.com;lr>, <sip:p1.example.com;lr>", rs.getValue());
+        assertEquals("<sip:p3.example.com>", rs.popTop().getValue());
+        rs.addTop(new RouteSet.Entry("<sip:p0.example.com;lr>"));
+        rs.addBottom(new RouteSet.Entry("<sip:p4.example.com;lr>"));
+        for (int i = 5; i < 12; i++) rs.addBottom(new RouteSet.Entry("<sip:p" + i + ".example.com;lr>"));
+        assertEquals(11, rs.size());
+        assertEquals("<sip:p0.example.com;lr>", rs.popTop().getValue());
+        assertEquals("<sip:p11.example.com;lr>", rs.popBottom().getValue());
+        assertEquals("<sip:p2.example.com;lr>", rs.getTop().getValue());
+
+        final RouteSet route = new RouteSet(SipHeaders.Route, rs);
+        assertEquals(SipHeaders.Route, route.getName());
+        assertEquals(rs.getValue(), route.getValue());
+        route.popTop();
+        assertEquals(8, route.size());
+        assertEquals(9, rs.size());
+    }
+
+    public void testStrictRoute() {
+        final Message m = new Message("BYE sip:bob@client.biloxi.com SIP/2.0\r\n" +
+                "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bKnashds7\r\n" +
+                "Route: <sip:strict.example.com>\r\n" +
+                "Route: <sip:p2.example.com;lr>\r\n" +
+                "Call-ID: a84b4c76e66710\r\n" +
+                "CSeq: 231 BYE\r\n" +
+                "Content-Length: 0\r\n\r\n");
+
+        m.rfc2543RouteAdapt();
+        assertEquals("strict.example.com", m.getRequestLine().getAddress().getHost());
+        assertEquals("<sip:p2.example.com;lr>, <sip:bob@client.biloxi.com>", m.getRouteSet().getValue());
+
+        m.rfc2543toRfc3261RouteUpdate();
+        assertEquals("bob", m.getRequestLine().getAddress().getUserName());
+        assertEquals(2, m.getRouteSet().size());
+        assertTrue(m.getRouteSet().getTop().hasLr());
+
+        m.removeRouteHeader();
+        assertEquals("<sip:p2.example.com;lr>", m.getRouteSet().getValue());
+    }
+
+}
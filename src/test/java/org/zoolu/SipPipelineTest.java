@@ -0,0 +1,94 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.xmpp.jnodes.nio.ListenerDatagramChannel;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.provider.SipPipeline;
+import org.zoolu.tools.RingBuffer;
+import org.zoolu.tools.WaitStrategy;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SipPipelineTest extends TestCase {
+
+    public void testRingBuffer() throws InterruptedException {
+
+        final RingBuffer<long[]> ring = new RingBuffer<long[]>(6, new RingBuffer.Factory<long[]>() {
+            public long[] newInstance() {
+                return new long[1];
+            }
+        }, WaitStrategy.YIELD);
+        assertEquals(8, ring.getSize());
+
+        final int producers = 4, n = 20000;
+        final long[] sum = new long[1];
+        final Thread consumer = new Thread() {
+            public void run() {
+                int total = 0;
+                while (total < producers * n) {
+                    total += ring.consume(new RingBuffer.Handler<long[]>() {
+                        public void onSlot(long[] slot, long sequence, boolean endOfBatch) {
+                            sum[0] += slot[0];
+                        }
+                    });
+                }
+            }
+        };
+        consumer.start();
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread() {
+                public void run() {
+                    for (int i = 1; i <= n; i++) {
+                        final long seq = ring.next();
+                        ring.get(seq)[0] = i;
+                        ring.publish(seq);
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        consumer.join(10000);
+        assertEquals((long) producers * n * (n + 1) / 2, sum[0]);
+    }
+
+    public void testPipeline() throws InterruptedException {
+
+        final int n = 500;
+        final CountDownLatch done = new CountDownLatch(n);
+        final AtomicInteger next = new AtomicInteger(1);
+        final AtomicInteger errors = new AtomicInteger();
+        final SipPipeline pipeline = new SipPipeline(new SipPipeline.MessageHandler() {
+            public void onMessage(ListenerDatagramChannel channel, Message msg, SocketAddress source) {
+                if (msg.getCSeqHeader().getSequenceNumber() != next.getAndIncrement()) {
+                    errors.incrementAndGet();
+                }
+                done.countDown();
+            }
+        }, 64, WaitStrategy.PARK);
+        pipeline.start();
+
+        final SocketAddress source = new InetSocketAddress("127.0.0.1", 5060);
+        for (int i = 1; i <= n; i++) {
+            final ByteBuffer b = ByteBuffer.allocate(1450);
+            b.put(("OPTIONS sip:a@b SIP/2.0\r\nVia: SIP/2.0/UDP h;branch=z9hG4bK" + i + "\r\nFrom: <sip:c@d>;tag=1\r\nTo: <sip:a@b>\r\nCall-ID: x\r\nCSeq: " + i + " OPTIONS\r\n\r\n").getBytes());
+            while (pipeline.getPending() > 60) {
+                Thread.yield();
+            }
+            pipeline.datagramReceived(null, b, source);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pipeline.stop();
+        assertEquals(0, errors.get());
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.message.Message;
+import org.zoolu.sip.message.SipParsingException;
+import org.zoolu.sip.provider.SipStreamListener;
+import org.zoolu.sip.provider.SipStreamParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SipStreamParserTest extends TestCase {
+
+    final String invite = "INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/TCP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+            "To: Bob <sip:bob@biloxi.com>\r\n" +
+            "From: Alice <sip:alice@atlanta.com>;tag=1928301774\r\n" +
+            "Call-ID: a84b4c76e66710@pc33.atlanta.com\r\n" +
+            "CSeq: 314159 INVITE\r\n" +
+            "Content-Type: application/sdp\r\n" +
+            "Content-Length: 14\r\n" +
+            "\r\n" +
+            "v=0\r\no=alice\r\n";
+
+    final String bye = "BYE sip:alice@pc33.atlanta.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/TCP 192.0.2.4;branch=z9hG4bKnashds10\r\n" +
+            "From: Bob <sip:bob@biloxi.com>;tag=a6c85cf\r\n" +
+            "To: Alice <sip:alice@atlanta.com>;tag=1928301774\r\n" +
+            "i: a84b4c76e66710@pc33.atlanta.com\r\n" +
+            "CSeq: 231 BYE\r\n" +
+            "\r\n";
+
+    public void testChunks() throws SipParsingException {
+
+        final List<Message> messages = new ArrayList<Message>();
+        final SipStreamParser parser = new SipStreamParser(new SipStreamListener() {
+            public void onReceivedMessage(SipStreamParser parser, Message msg) {
+                messages.add(msg);
+            }
+        }, 1024);
+
+        final byte[] stream = ("\r\n\r\n" + invite + bye + invite + "\r\n").getBytes();
+
+        for (int chunk = 1; chunk <= stream.length; chunk += 7) {
+            messages.clear();
+            for (int i = 0; i < stream.length; i += chunk) {
+                parser.push(stream, i, Math.min(chunk, stream.length - i));
+            }
+            assertEquals(3, messages.size());
+            assertTrue(messages.get(0).isInvite());
+            assertEquals("v=0\r\no=alice\r\n", messages.get(0).getBody());
+            assertTrue(messages.get(1).isBye());
+            assertEquals("a84b4c76e66710@pc33.atlanta.com", messages.get(1).getCallIdHeader().getCallId());
+            assertTrue(messages.get(2).isInvite());
+            assertEquals(0, parser.getPendingLength());
+        }
+    }
+
+    public void testTooBig() {
+
+        final SipStreamParser parser = new SipStreamParser(null, 64);
+        final byte[] b = invite.getBytes();
+        try {
+            parser.push(b, 0, b.length);
+            fail("Message should be rejected");
+        } catch (SipParsingException e) {
+            // expected
+        }
+        assertEquals(0, parser.getPendingLength());
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.address.SipURL;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SipURLTest extends TestCase {
+
+    public void testComponents() {
+
+        final SipURL url = new SipURL("sip:alice@atlanta.com:5070;transport=tcp;lr;maddr=\"a;b\"");
+        assertEquals("alice", url.getUserName());
+        assertEquals("atlanta.com", url.getHost());
+        assertEquals(5070, url.getPort());
+        assertEquals("tcp", url.getTransport());
+        assertTrue(url.hasLr());
+        assertNull(url.getParameter("lr"));
+        assertEquals("\"a;b\"", url.getMaddr());
+        assertEquals(3, url.getParameters().size());
+
+        final SipURL host = new SipURL("biloxi.com");
+        assertNull(host.getUserName());
+        assertEquals("biloxi.com", host.getHost());
+        assertEquals(-1, host.getPort());
+        assertFalse(host.hasParameters());
+
+        host.addTransport("UDP");
+        assertEquals("udp", host.getTransport());
+        host.removeParameter("transport");
+        assertFalse(host.hasTransport());
+    }
+
+    public void testEquality() {
+
+        final SipURL a = new SipURL("bob", "Biloxi.com", 5060);
+        a.addParameter("transport", "udp");
+        a.addLr();
+        final SipURL b = new SipURL("sip:bob@biloxi.com:5060;lr;transport=udp");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertFalse(a.equals(new SipURL("sip:bob@biloxi.com;lr;transport=udp")));
+        assertFalse(a.equals("sip:bob@biloxi.com:5060;lr;transport=udp"));
+
+        final Map<SipURL, String> map = new HashMap<SipURL, String>();
+        map.put(a, "bob");
+        assertEquals("bob", map.get(b));
+    }
+
+    public void testMutationInvalidatesCache() {
+
+        final SipURL a = new SipURL("bob", "biloxi.com");
+        final SipURL copy = new SipURL(a);
+        final int h0 = a.hashCode();
+        assertEquals(a, copy);
+
+        a.addLr();
+        assertTrue(a.hasLr());
+        assertFalse(a.equals(copy));
+        assertEquals(new SipURL("sip:bob@biloxi.com;lr").hashCode(), a.hashCode());
+        assertFalse(copy.hasLr());
+
+        a.addTransport("TCP");
+        a.addMaddr("10.0.0.1");
+        a.addTtl(5);
+        a.addParameter("x", "1");
+        a.addParameter("y");
+        assertEquals("tcp", a.getTransport());
+        assertEquals("10.0.0.1", a.getMaddr());
+        assertEquals(5, a.getTtl());
+        assertTrue(a.hasParameter("y"));
+        assertEquals(new SipURL("sip:bob@biloxi.com;y;x=1;ttl=5;maddr=10.0.0.1;transport=tcp;lr"), a);
+        assertEquals(new SipURL("sip:bob@biloxi.com;y;x=1;ttl=5;maddr=10.0.0.1;transport=tcp;lr").hashCode(), a.hashCode());
+
+        a.removeParameter("x");
+        assertFalse(a.hasParameter("x"));
+        a.removeParameters();
+        assertFalse(a.hasParameters());
+        assertEquals(copy, a);
+        assertEquals(h0, a.hashCode());
+
+        final SipURL sub = new SipURL("sip:alice@atlanta.com") {
+            {
+                hashCode();
+                url = "sip:carol@chicago.com:5070";
+            }
+        };
+        assertEquals("carol", sub.getUserName());
+        assertEquals(5070, sub.getPort());
+        assertEquals(new SipURL("sip:carol@chicago.com:5070"), sub);
+        assertEquals(new SipURL("sip:carol@chicago.com:5070").hashCode(), sub.hashCode());
+    }
+
+}
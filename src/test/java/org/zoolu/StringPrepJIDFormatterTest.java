@@ -0,0 +1,54 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.message.StringPrepJIDFormatter;
+
+public class StringPrepJIDFormatterTest extends TestCase {
+
+    final StringPrepJIDFormatter formatter = new StringPrepJIDFormatter();
+
+    private void assertInvalid(String jid) {
+        try {
+            formatter.prepForJID(jid);
+            fail("Should be invalid: " + jid);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testAscii() {
+        final String jid = "5511999990000@xmpp.org/Phone 1";
+        assertSame(jid, formatter.prepForJID(jid));
+        assertSame("xmpp.org", formatter.prepForJID("xmpp.org"));
+        assertEquals("alice@xmpp.org/Home", formatter.prepForJID("Alice@XMPP.org/Home"));
+        assertEquals("a@[::1]", formatter.prepForJID("A@[::1]"));
+        assertEquals("a@b.org/c@d/e", formatter.prepForJID("a@b.org/c@d/e"));
+
+        assertInvalid("al'ice@xmpp.org");
+        assertInvalid("al ice@xmpp.org");
+        assertInvalid("alice@xm pp.org");
+        assertInvalid("alice@xmpp.org/\u0007");
+        assertInvalid("@xmpp.org");
+        assertInvalid("alice@");
+        assertInvalid("alice@xmpp.org/");
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            sb.append('a');
+        }
+        assertInvalid(sb + "@xmpp.org");
+    }
+
+    public void testUnicode() {
+        assertEquals("jos\u00E9@xmpp.org", formatter.prepForJID("JOS\u00C9@xmpp.org"));
+        // decomposed e + combining acute, and a soft hyphen
+        assertEquals("jos\u00E9@xmpp.org", formatter.prepForJID("Jose\u0301\u00AD@xmpp.org"));
+        assertEquals("user@\u00E9xample.org/R\u00E9sum\u00E9", formatter.prepForJID("user@\u00C9xample.org/R\u00E9sum\u00E9"));
+        // full-width letters are normalized
+        assertEquals("ab@xmpp.org", formatter.prepForJID("\uFF21\uFF22@xmpp.org"));
+
+        assertInvalid("a\u00A0b@xmpp.org");
+        assertInvalid("a\uE000b@xmpp.org");
+        assertInvalid("\u05D0a\u05D1@xmpp.org");
+        assertEquals("\u05D0\u05D1@xmpp.org", formatter.prepForJID("\u05D0\u05D1@xmpp.org"));
+    }
+}
@@ -2,6 +2,10 @@ package org.zoolu;
 
 import junit.framework.TestCase;
 import org.zoolu.sip.message.JIDFactory;
+import org.zoolu.sip.message.JIDFormatter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created with IntelliJ IDEA.
@@ -46,4 +50,72 @@ public class TestJIDFactory extends TestCase {
 
     }
 
+    public void testComputeOnce() throws InterruptedException {
+        final JIDFactory factory = JIDFactory.getInstance();
+        final AtomicInteger prepared = new AtomicInteger();
+        final String key = "once" + System.nanoTime() + "@xmpp.org/test";
+        final JIDFormatter counter = new JIDFormatter() {
+            public String prepForJID(String str) {
+                if (str.equals(key)) {
+                    prepared.incrementAndGet();
+                }
+                return str;
+            }
+        };
+        factory.addJIDPrepFilter(counter);
+        try {
+            final int n = 8;
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(n);
+            final String[] results = new String[n];
+            for (int i = 0; i < n; i++) {
+                final int k = i;
+                new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            results[k] = factory.getJID(key);
+                        } catch (InterruptedException e) {
+                            // ignore
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }.start();
+            }
+            final long hits = factory.getHitCount();
+            start.countDown();
+            done.await();
+            assertEquals(1, prepared.get());
+            for (String r : results) {
+                assertSame(results[0], r);
+            }
+            assertTrue(factory.getHitCount() - hits >= n - 1);
+            assertTrue(factory.isCached(key));
+        } finally {
+            // the factory is shared with the other tests
+            assertTrue(factory.removeJIDPrepFilter(counter));
+        }
+        assertFalse(factory.removeJIDPrepFilter(counter));
+    }
+
+    public void testWeight() {
+        final JIDFactory factory = JIDFactory.getInstance();
+        factory.reset();
+        final long evictions = factory.getEvictionCount();
+        factory.setMaximumWeight(100);
+        try {
+            for (int i = 0; i < 20; i++) {
+                factory.getJID("user" + i + "@xmpp.org");
+            }
+            assertTrue(factory.getWeightedSize() <= 100);
+            assertTrue(factory.size() < 20);
+            assertTrue(factory.getEvictionCount() > evictions);
+            assertTrue(factory.isCached("user19@xmpp.org"));
+            assertFalse(factory.isCached("user0@xmpp.org"));
+        } finally {
+            factory.setMaximumWeight(JIDFactory.DEFAULT_MAX_WEIGHT);
+        }
+    }
+
 }
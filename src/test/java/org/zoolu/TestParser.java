@@ -2,6 +2,12 @@ package org.zoolu;
 
 import junit.framework.TestCase;
 import org.zoolu.sip.message.Message;
+import org.zoolu.sip.provider.SipHeaderScanner;
+import org.zoolu.sip.provider.SipParser;
+import org.zoolu.tools.CharClass;
+import org.zoolu.tools.Parser;
+
+import java.nio.charset.Charset;
 
 /**
  * Created by IntelliJ IDEA.
@@ -63,5 +69,107 @@ public class TestParser extends TestCase {
 
     }
 
+    public void testHeaderScanner(){
+
+        final String folded = "INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+                "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+                "Subject: lunch\r\n  at noon\r\n" +
+                "To: Bob <sip:bob@biloxi.com>\r\n" +
+                "Content-Length: 4\r\n" +
+                "\r\n" +
+                "abcd";
+
+        for (String s : new String[]{sipString, folded}) {
+            final byte[] b = ("xx" + s).getBytes();
+            final SipHeaderScanner scanner = new SipHeaderScanner();
+            scanner.scan(b, 2, b.length - 2);
+            assertTrue(scanner.isComplete());
+            assertTrue(scanner.isAscii());
+            assertEquals(s.indexOf("\n\n") >= 0 ? s.indexOf("\n\n") + 4 : s.indexOf("\r\n\r\n") + 6, scanner.getBodyBegin());
+
+            final Message a = new Message(s);
+            final Message m = new Message(b, 2, b.length - 2);
+            assertEquals(a.toString(), m.toString());
+            assertEquals(a.getBody(), m.getBody());
+        }
+
+        final Message m = new Message(folded.getBytes(), 0, folded.length());
+        assertEquals("lunch\r\n  at noon", m.getHeader("Subject").getValue());
+        assertEquals("abcd", m.getBody());
+    }
+
+    public void testBodyView() {
+        final String s = "MESSAGE sip:bob@biloxi.com SIP/2.0\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Length: 6\r\n" +
+                "\r\n" +
+                "hello\n  trailing";
+
+        for (Message m : new Message[]{new Message(s), new Message(s.getBytes(), 0, s.length())}) {
+            assertEquals("hello\n", m.getBody());
+            assertEquals(6, m.getBodyView().length());
+            assertEquals('h', m.getBodyView().charAt(0));
+            assertEquals("ell", m.getBodyView().subSequence(1, 4).toString());
+            assertEquals("", m.getBodyView().subSequence(6, 6).toString());
+            // never exposes chars of the message outside the body
+            for (int[] r : new int[][]{{-1, 2}, {0, 7}, {4, 3}, {-5, -1}}) {
+                try {
+                    m.getBodyView().subSequence(r[0], r[1]);
+                    fail(r[0] + "," + r[1]);
+                } catch (IndexOutOfBoundsException e) {
+                    // expected
+                }
+            }
+        }
+
+        if ("UTF-8".equals(Charset.defaultCharset().name())) {
+            // Content-Length counts bytes
+            final byte[] utf8 = s.replace("Length: 6", "Length: 3").replace("hello", "\u00e9a").getBytes();
+            assertEquals("\u00e9a", new Message(utf8, 0, utf8.length).getBody());
+        }
+
+        final Message noLength = new Message("MESSAGE sip:bob@biloxi.com SIP/2.0\r\nContent-Type: text/plain\r\n\r\nhi\r\n\r\n");
+        assertEquals("hi", noLength.getBody());
+
+        final Message empty = new Message("MESSAGE sip:bob@biloxi.com SIP/2.0\r\nContent-Length: 0\r\n\r\n");
+        assertFalse(empty.hasBody());
+        assertNull(empty.getBodyView());
+
+        empty.setBody("text/plain", "new");
+        assertEquals("new", empty.getBodyView().toString());
+    }
+
+    public void testCharClass(){
+
+        for (char c = 0; c < 256; c++) {
+            assertEquals(Parser.isAnyOf(SipParser.SEPARATOR, c), SipParser.isSeparator(c));
+            assertEquals(Parser.isAnyOf(Parser.WSPCRLF, c), Parser.isWSPCRLF(c));
+        }
+        assertTrue(new CharClass("\u00e9;").contains('\u00e9'));
+        assertFalse(CharClass.WSP.contains('\u0120'));
+
+        final Parser par = new Parser("  a=b; c ,d");
+        assertEquals("a", par.getWord(SipParser.param_separators));
+        assertEquals("b", par.getWord(SipParser.PARAM_SEPARATOR_CHARS));
+        assertEquals(" c ,d", par.skipChar().getRemainingString());
+        assertEquals("c", par.getWord(SipParser.PARAM_SEPARATOR_CHARS));
+
+        // ad-hoc arrays and classes scan alike
+        final char[] seps = {';', '\u00e9'};
+        final CharClass sepClass = CharClass.of(seps);
+        final String text = ";;x=\"a;b\"\u00e9;y;\u00e9";
+        for (int i = 0; i <= text.length(); i++) {
+            assertEquals(new Parser(text, i).indexOf(sepClass), new Parser(text, i).indexOf(seps));
+            assertEquals(new Parser(text, i).goTo(sepClass).getPos(), new Parser(text, i).goTo(seps).getPos());
+            assertEquals(new Parser(text, i).skipChars(sepClass).getPos(), new Parser(text, i).skipChars(seps).getPos());
+            assertEquals(new Parser(text, i).getWord(sepClass), new Parser(text, i).getWord(seps));
+            assertEquals(new Parser(text, i).getWordSkippingQuoted(sepClass), new Parser(text, i).getWordSkippingQuoted(seps));
+        }
+        assertEquals(new Parser(text).getWordVector(sepClass), new Parser(text).getWordVector(seps));
+
+        final SipParser sp = new SipParser("To: <sip:a@b>\r\n ;tag=1\r\nCall-ID: x\r\n");
+        assertEquals("To: <sip:a@b>\r\n ;tag=1".length(), sp.indexOfEOH());
+    }
+
 
 }
@@ -0,0 +1,59 @@
+package org.zoolu;
+
+import junit.framework.TestCase;
+import org.zoolu.sip.provider.TransactionKey;
+
+public class TransactionKeyTest extends TestCase {
+
+    final String invite = "INVITE sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds, SIP/2.0/UDP 10.0.0.1;branch=z9hG4bKother\r\n" +
+            "Call-ID: a84b4c76e66710@pc33.atlanta.com\r\n" +
+            "CSeq: 314159 INVITE\r\n" +
+            "Content-Length: 0\r\n" +
+            "\r\n";
+
+    final String ringing = "SIP/2.0 180 Ringing\r\n" +
+            "v: SIP/2.0/UDP PC33.atlanta.com ; received=192.0.2.1 ; BRANCH = z9hG4bK776asdhds\r\n" +
+            "CSeq: 314159 INVITE\r\n" +
+            "\r\n";
+
+    final String ack = "ACK sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+            "CSeq: 314159 ACK\r\n" +
+            "\r\n";
+
+    final String cancel = "CANCEL sip:bob@biloxi.com SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP pc33.atlanta.com;branch=z9hG4bK776asdhds\r\n" +
+            "CSeq: 314159 CANCEL\r\n" +
+            "\r\n";
+
+    private TransactionKey key(String s) {
+        final byte[] b = s.getBytes();
+        return TransactionKey.extract(b, 0, b.length);
+    }
+
+    public void testKeys() {
+
+        final TransactionKey k = key(invite);
+        assertNotNull(k);
+        assertTrue(k.isRfc3261());
+        assertEquals(k, key(ringing));
+        assertEquals(k.hashCode(), key(ringing).hashCode());
+        assertEquals(k, key(ack));
+        assertFalse(k.equals(key(cancel)));
+        assertFalse(k.equals(key(invite.replace("pc33.atlanta.com;", "pc34.atlanta.com;"))));
+        assertNull(key("OPTIONS sip:a@b SIP/2.0\r\nVia: SIP/2.0/UDP h\r\nCSeq: 1 OPTIONS\r\n\r\n"));
+    }
+
+    public void testMethodCase() {
+        final byte[] b = "INVITE invite ACK FOO foo".getBytes();
+        assertEquals(1, TransactionKey.getMethodId(b, 0, 6));
+        assertEquals(1, TransactionKey.getMethodId(b, 14, 17));
+        // method names are case-sensitive
+        assertTrue(TransactionKey.getMethodId(b, 7, 13) < 0);
+        assertTrue(TransactionKey.getMethodId(b, 18, 21) < 0);
+        assertFalse(TransactionKey.getMethodId(b, 18, 21) == TransactionKey.getMethodId(b, 22, 25));
+        assertFalse(key(invite).equals(key(invite.replace("CSeq: 314159 INVITE", "CSeq: 314159 invite"))));
+    }
+
+}